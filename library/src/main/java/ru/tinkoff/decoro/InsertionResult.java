@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+/**
+ * Outcome of inserting a text to a {@link Mask}: new cursor position and how many characters of
+ * the text were taken by the mask. Single instance can be reused for subsequent insertions.
+ *
+ * @author Mikhail Artemev
+ * @see Mask#insertAt(int, CharSequence, boolean, InsertionResult)
+ */
+public final class InsertionResult {
+
+    private int cursorPosition;
+    private int consumedCount;
+    private int droppedCount;
+
+    /**
+     * @return cursor position after insert
+     */
+    public int getCursorPosition() {
+        return cursorPosition;
+    }
+
+    /**
+     * @return number of input characters put to the mask (including the ones that matched
+     * hardcoded slots)
+     */
+    public int getConsumedCount() {
+        return consumedCount;
+    }
+
+    /**
+     * @return number of input characters that didn't get to the mask: either rejected by its
+     * slots or left unread since there were no more slots to take them
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    void set(int cursorPosition, int consumedCount, int droppedCount) {
+        this.cursorPosition = cursorPosition;
+        this.consumedCount = consumedCount;
+        this.droppedCount = droppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "InsertionResult{" +
+                "cursorPosition=" + cursorPosition +
+                ", consumedCount=" + consumedCount +
+                ", droppedCount=" + droppedCount +
+                '}';
+    }
+}
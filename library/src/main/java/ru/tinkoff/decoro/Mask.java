@@ -20,6 +20,8 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+
 import ru.tinkoff.decoro.slots.Slot;
 
 /**
@@ -41,6 +43,60 @@ public interface Mask extends Iterable<Slot>, Parcelable {
     @NonNull
     String toUnformattedString();
 
+    /**
+     * Appends mask contents (the same as {@code toString()} returns) to {@code out} without
+     * creating intermediate strings. Allows to reuse a single buffer for rendering many masks.
+     *
+     * @param out where to append mask contents
+     * @throws IOException if {@code out} fails to append a character
+     */
+    void renderTo(@NonNull Appendable out) throws IOException;
+
+    /**
+     * Same as {@link #renderTo(Appendable)} but for a {@link StringBuilder} which never fails.
+     *
+     * @param out where to append mask contents
+     */
+    void renderTo(@NonNull StringBuilder out);
+
+    /**
+     * Writes mask contents (the same as {@code toString()} returns) to {@code dst} starting from
+     * {@code offset}. Mask contents are never longer than {@link #getSize()}.
+     *
+     * @param dst    array to write mask contents to
+     * @param offset position in {@code dst} to start from
+     * @return number of written characters
+     * @throws IndexOutOfBoundsException if mask contents don't fit into {@code dst}
+     */
+    int renderTo(@NonNull char[] dst, int offset);
+
+    /**
+     * Appends mask contents without <b>decoration</b> characters (the same as
+     * {@link #toUnformattedString()} returns) to {@code out}.
+     *
+     * @param out where to append mask contents
+     */
+    void renderUnformattedTo(@NonNull StringBuilder out);
+
+    /**
+     * Live view of the mask contents. It always reflects the current state of the mask (the
+     * same as {@code toString()} returns) and reads characters right from the slots without
+     * creating a string. Don't keep indices of the view across modifications of the mask.
+     *
+     * @return formatted contents of the mask as a {@link CharSequence}
+     */
+    @NonNull
+    CharSequence asCharSequence();
+
+    /**
+     * Same as {@link #asCharSequence()} but without <b>decoration</b> characters (the same as
+     * {@link #toUnformattedString()} returns).
+     *
+     * @return unformatted contents of the mask as a {@link CharSequence}
+     */
+    @NonNull
+    CharSequence asUnformattedCharSequence();
+
     /**
      * Looks for initial position for cursor since buffer can be predefined with starting
      * characters
@@ -55,6 +111,14 @@ public interface Mask extends Iterable<Slot>, Parcelable {
      */
     boolean hasUserInput();
 
+    /**
+     * Looks for the last slot filled out with user input (i.e. non-hardcoded slot with a value).
+     * Mask keeps track of this slot so the method doesn't walk the slots.
+     *
+     * @return index of the last slot with user input or -1 if there's no user input
+     */
+    int getLastInputIndex();
+
     /**
      * Checks whether th whole mask is filled out.
      *
@@ -83,6 +147,50 @@ public interface Mask extends Iterable<Slot>, Parcelable {
      */
     int insertAt(int position, @Nullable CharSequence input, boolean cursorAfterTrailingHardcoded);
 
+    /**
+     * Same as {@link #insertAt(int, CharSequence, boolean)} but also reports how many characters
+     * of the input were put to the mask and how many were dropped. Input is not read any further
+     * once there're no slots left to take it (e.g. a long text pasted to a short terminated mask).
+     *
+     * @param position                     from which position to begin input
+     * @param input                        string to insert
+     * @param cursorAfterTrailingHardcoded when input is followed by a hardcoded characters
+     *                                     sequence then this flag defines whether new cursor
+     *                                     position should be after or before them
+     * @param result                       holder to be filled with the cursor position and
+     *                                     number of consumed and dropped characters
+     * @return cursor position after insert
+     */
+    int insertAt(int position, @Nullable CharSequence input, boolean cursorAfterTrailingHardcoded, @NonNull InsertionResult result);
+
+    /**
+     * Removes characters from {@code start} (inclusive) to {@code end} (exclusive). The result
+     * is the same as of {@link #removeBackwards(int, int)} called for the last character of the
+     * range but the following characters are moved to their new places in a single pass when
+     * slots rules allow it.
+     *
+     * @param start position of the first character to remove
+     * @param end   position after the last character to remove
+     * @return cursor position after removal
+     */
+    int removeRange(int start, int end);
+
+    /**
+     * Replaces characters from {@code start} (inclusive) to {@code end} (exclusive) with
+     * {@code text}. The result is the same as removing the range with
+     * {@link #removeBackwardsWithoutHardcoded(int, int)} and inserting the text with
+     * {@link #insertAt(int, CharSequence)}. When the slots accept the text as well as the
+     * following characters, the characters of the range are overwritten in place and the
+     * following ones are moved once by the difference of the lengths. Otherwise the range is
+     * actually removed and the text is inserted, moving the following characters twice.
+     *
+     * @param start position of the first character to replace
+     * @param end   position after the last character to replace
+     * @param text  text to put instead of the range
+     * @return cursor position after replace
+     */
+    int replace(int start, int end, @Nullable CharSequence text);
+
     /**
      * Convenience method for {@link MaskImpl#insertAt(int, CharSequence, boolean)} that always
      * places cursor after trailing hardcoded sequence.
@@ -211,4 +319,29 @@ public interface Mask extends Iterable<Slot>, Parcelable {
      * @throws IndexOutOfBoundsException if cursorPosition &lt; 0 or cursorPosition &gt; size
      */
     int findCursorPositionInUnformattedString(int cursorPosition);
+
+    /**
+     * Maps a position in a formatted text ({@link #toString()}) to a position in an unformatted
+     * one ({@link #toUnformattedString()}), i.e. counts non-decoration slots before the position.
+     * Unlike {@link #findCursorPositionInUnformattedString(int)} a decoration slot right at the
+     * position is not taken into account. Works in constant time.
+     *
+     * @param formattedPosition position in a formatted text
+     * @return corresponding position in an unformatted text
+     * @throws IndexOutOfBoundsException if formattedPosition &lt; 0 or formattedPosition &gt; size
+     */
+    int toUnformattedPosition(int formattedPosition);
+
+    /**
+     * Maps a position in an unformatted text ({@link #toUnformattedString()}) to a position in a
+     * formatted one ({@link #toString()}). Resulting position is placed right after the
+     * corresponding non-decoration slot and before any decoration that follows it. Works in
+     * logarithmic time.
+     *
+     * @param unformattedPosition position in an unformatted text
+     * @return corresponding position in a formatted text
+     * @throws IndexOutOfBoundsException if unformattedPosition &lt; 0 or unformattedPosition is
+     *                                   greater than number of non-decoration slots
+     */
+    int toFormattedPosition(int unformattedPosition);
 }
@@ -47,9 +47,10 @@ public class MaskFactoryImpl implements MaskFactory {
             throw new IllegalStateException("Cannot create mask: neither slots nor slots parser and raw-mask are set");
         }
 
+        // parsed slots are only copied by the mask, so they are taken from the cache
         final Slot[] slots = maskDescriptor.getSlots() != null ?
                 maskDescriptor.getSlots() :
-                slotsParser.parseSlots(maskDescriptor.getRawMask());
+                ParsedSlotsCache.parseSlots(slotsParser, maskDescriptor.getRawMask());
 
         final Mask mask = new MaskImpl(slots, maskDescriptor.isTerminated());
         mask.setForbidInputWhenFilled(maskDescriptor.isForbidInputWhenFilled());
@@ -20,12 +20,13 @@ import android.os.Parcel;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Locale;
 
 import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotValidatorSet;
 
 /**
  * @author Mikhail Artemev
@@ -40,8 +41,6 @@ public class MaskImpl implements Mask {
         return new MaskImpl(slots, false);
     }
 
-    private static final int TAG_EXTENSION = -149635;
-
     // Members available outside the Mask
     private boolean terminated = true;
     private Character placeholder;
@@ -53,6 +52,27 @@ public class MaskImpl implements Mask {
     private boolean showHardcodedTail = true;
     private SlotsList slots;
 
+    // bumped on every change of the mask parameters affecting its rendering, changes of the slots
+    // are counted by the slots list itself
+    private int version;
+    @Nullable
+    private String formattedString;
+    private int formattedStringVersion;
+    @Nullable
+    private String unformattedString;
+    private int unformattedStringVersion;
+    private boolean renderEndsValid;
+    private int renderEndsVersion;
+    private int formattedEnd;
+    private int unformattedEnd;
+    // distinct validators and hardcoded values met by bulk operations, see movedValuesFit()
+    private SlotValidatorSet[] movedThroughValidators = new SlotValidatorSet[8];
+    private char[] movedThroughHardcoded = new char[16];
+    @Nullable
+    private CharSequence formattedView;
+    @Nullable
+    private CharSequence unformattedView;
+
     public MaskImpl(@NonNull Slot[] slots, boolean terminated) {
         this.terminated = terminated;
 
@@ -103,62 +123,183 @@ public class MaskImpl implements Mask {
 
     @NonNull
     private String toString(boolean allowDecoration) {
-        return !slots.isEmpty() ? toStringFrom(slots.getFirstSlot(), allowDecoration) : "";
+        final int currentVersion = getVersion();
+        if (allowDecoration) {
+            if (formattedString == null || formattedStringVersion != currentVersion) {
+                formattedString = render(true);
+                formattedStringVersion = currentVersion;
+            }
+            return formattedString;
+        } else {
+            if (unformattedString == null || unformattedStringVersion != currentVersion) {
+                unformattedString = render(false);
+                unformattedStringVersion = currentVersion;
+            }
+            return unformattedString;
+        }
+    }
+
+    @NonNull
+    private String render(boolean allowDecoration) {
+        if (slots.isEmpty()) {
+            return "";
+        }
+
+        final StringBuilder result = new StringBuilder(slots.size());
+        appendTo(result, allowDecoration);
+        return result.toString();
     }
 
     @Override
-    public Iterator<Slot> iterator() {
-        return slots.iterator();
+    public void renderTo(@NonNull Appendable out) throws IOException {
+        final int end = getRenderEnd(true);
+        final char placeholder = getPlaceholder();
+
+        for (int index = 0; index < end; index++) {
+            out.append(renderedCharAt(index, placeholder));
+        }
     }
 
-    private String toStringFrom(final Slot startSlot, final boolean allowDecoration) {
-        final StringBuilder result = new StringBuilder();
+    @Override
+    public void renderTo(@NonNull StringBuilder out) {
+        appendTo(out, true);
+    }
 
-        // create a string out of slots values
-        Slot slot = startSlot;
-        int index = 0;
-        while (slot != null) {
-            Character c = slot.getValue();
+    @Override
+    public int renderTo(@NonNull char[] dst, int offset) {
+        final int end = getRenderEnd(true);
+        if (offset < 0 || dst.length - offset < end) {
+            throw new IndexOutOfBoundsException(String.format(Locale.getDefault(), "Rendered length: %d, array length: %d, passed offset: %d", end, dst.length, offset));
+        }
 
-            if (allowDecoration || !slot.hasTag(Slot.TAG_DECORATION)) {
-                boolean anyInputFromHere = slot.anyInputToTheRight();
+        final char placeholder = getPlaceholder();
+        for (int index = 0; index < end; index++) {
+            dst[offset + index] = renderedCharAt(index, placeholder);
+        }
 
-                if (!anyInputFromHere && !showingEmptySlots) {
-                    // user input nothing to the right from this point
-                    if (!showHardcodedTail || !slots.checkIsIndex(slot.hardcodedSequenceEndIndex() - 1 + index)) {
-                        break;
-                    }
-                }
+        return end;
+    }
 
-                // if we've met slot with no value we got two options:
-                // 1) Stop further output. This option should apply when we have no further input value
-                //                         (except hardcoded)
-                // 2) Continue with showing placeholder. This option is for a case when there's some
-                //                                       after current slot or Mask#showingEmptySlots is true
-                if (c == null && (showingEmptySlots || anyInputFromHere)) {
-                    c = getPlaceholder();
-                } else if (c == null) {
-                    break;
-                }
+    @Override
+    public void renderUnformattedTo(@NonNull StringBuilder out) {
+        appendTo(out, false);
+    }
+
+    private void appendTo(final StringBuilder out, final boolean allowDecoration) {
+        final int end = getRenderEnd(allowDecoration);
+        final char placeholder = getPlaceholder();
+
+        out.ensureCapacity(out.length() + (allowDecoration ? end : end - slots.decorationsBefore(end)));
+        for (int index = 0; index < end; index++) {
+            if (allowDecoration || !isDecoration(index)) {
+                out.append(renderedCharAt(index, placeholder));
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public CharSequence asCharSequence() {
+        if (formattedView == null) {
+            formattedView = new ContentView(true);
+        }
+        return formattedView;
+    }
+
+    @NonNull
+    @Override
+    public CharSequence asUnformattedCharSequence() {
+        if (unformattedView == null) {
+            unformattedView = new ContentView(false);
+        }
+        return unformattedView;
+    }
+
+    /**
+     * @return length of the mask contents
+     */
+    private int renderedLength(final boolean allowDecoration) {
+        final int end = getRenderEnd(allowDecoration);
+        return allowDecoration ? end : end - slots.decorationsBefore(end);
+    }
 
-                result.append(c);
+    /**
+     * Same as {@link #renderEnd(boolean)} but computed once per version of the mask.
+     */
+    private int getRenderEnd(final boolean allowDecoration) {
+        final int currentVersion = getVersion();
+        if (!renderEndsValid || renderEndsVersion != currentVersion) {
+            formattedEnd = renderEnd(true);
+            unformattedEnd = renderEnd(false);
+            renderEndsVersion = currentVersion;
+            renderEndsValid = true;
+        }
+        return allowDecoration ? formattedEnd : unformattedEnd;
+    }
+
+    /**
+     * Finds where rendering of the mask stops. All the slots before the returned index (except
+     * for decoration ones if they aren't allowed) are rendered either with their values or with
+     * placeholder. Whether there's any input to the right of a slot is decided by the last input
+     * index the mask keeps track of.
+     *
+     * @param allowDecoration whether decoration slots should be rendered
+     * @return index of the first slot that is not rendered
+     */
+    private int renderEnd(final boolean allowDecoration) {
+        if (showingEmptySlots) {
+            return slots.size();
+        }
+
+        // there's user input in all the slots up to this one, so slots without value are shown
+        // with placeholder
+        int index = getLastInputIndex() + 1;
+        for (; index < slots.size(); index++) {
+            if (!allowDecoration && isDecoration(index)) {
+                continue;
             }
 
-            slot = slot.getNextSlot();
-            index++;
+            // user input nothing to the right from this point. Only a sequence of hardcoded
+            // values may follow if we're allowed to show it
+            if (!showHardcodedTail || !slots.hasValueAt(index)) {
+                break;
+            }
         }
 
-        return result.toString();
+        return index;
+    }
+
+    private char renderedCharAt(final int index, final char placeholder) {
+        return slots.hasValueAt(index) ? slots.getValueAt(index) : placeholder;
+    }
+
+    private boolean isDecoration(final int index) {
+        return slots.getSlot(index).hasTag(Slot.TAG_DECORATION);
+    }
+
+    /**
+     * Version of the mask content. It changes on every modification of the mask (including
+     * modifications made directly to its slots) and stays the same otherwise. So it's safe to
+     * keep anything computed out of the mask until the version changes. Version may overflow,
+     * so only compare it for equality.
+     *
+     * @return current version of the mask
+     */
+    public int getVersion() {
+        return version + slots.getVersion();
+    }
+
+    @Override
+    public Iterator<Slot> iterator() {
+        return slots.iterator();
     }
 
     @Override
     public int getInitialInputPosition() {
         int cursorPosition = 0;
 
-        Slot slot = slots.getSlot(cursorPosition);
-        while (slot != null && slot.getValue() != null) {
+        while (slots.checkIsIndex(cursorPosition) && slots.hasValueAt(cursorPosition)) {
             cursorPosition++;
-            slot = slot.getNextSlot();
         }
 
         return cursorPosition;
@@ -166,35 +307,26 @@ public class MaskImpl implements Mask {
 
     @Override
     public boolean hasUserInput() {
-        if (slots.isEmpty()) {
-            return false;
-        }
+        return getLastInputIndex() >= 0;
+    }
 
-        return slots.getFirstSlot().anyInputToTheRight();
+    @Override
+    public int getLastInputIndex() {
+        return slots.getLastInputIndex();
     }
 
     @Override
     public boolean filled() {
-        return !slots.isEmpty() && filledFrom(slots.getFirstSlot());
+        return !slots.isEmpty() && filledFrom(0);
     }
 
-    private boolean filledFrom(final Slot initialSlot) {
-        if (initialSlot == null) {
+    private boolean filledFrom(final int initialPosition) {
+        if (!slots.checkIsIndex(initialPosition)) {
             throw new IllegalArgumentException("first slot is null");
         }
 
-        Slot nextSlot = initialSlot;
-        do {
-            if (!nextSlot.hasTag(TAG_EXTENSION)) {
-                if (!nextSlot.hardcoded() && nextSlot.getValue() == null) {
-                    return false;
-                }
-            }
-
-            nextSlot = nextSlot.getNextSlot();
-        } while (nextSlot != null);
-
-        return true;
+        // there should be no empty slots (except of extension ones) from here
+        return slots.getLastHoleIndex() < initialPosition;
     }
 
     @Override
@@ -223,27 +355,53 @@ public class MaskImpl implements Mask {
      */
     @Override
     public int insertAt(final int position, @Nullable final CharSequence input, boolean cursorAfterTrailingHardcoded) {
-        if (slots.isEmpty() || !slots.checkIsIndex(position) || input == null || input.length() == 0) {
-            return position;
+        return insertAtInner(position, input, cursorAfterTrailingHardcoded, null);
+    }
+
+    /**
+     * Same as {@link #insertAt(int, CharSequence, boolean)} but also reports how many characters
+     * of the input were taken by the mask.
+     *
+     * @param result holder for the cursor position and number of consumed and dropped characters
+     * @return cursor position after insert
+     */
+    @Override
+    public int insertAt(int position, @Nullable CharSequence input, boolean cursorAfterTrailingHardcoded, @NonNull InsertionResult result) {
+        return insertAtInner(position, input, cursorAfterTrailingHardcoded, result);
+    }
+
+    private int insertAtInner(final int position, @Nullable final CharSequence input, boolean cursorAfterTrailingHardcoded, @Nullable InsertionResult result) {
+        final int inputLength = input == null ? 0 : input.length();
+
+        if (slots.isEmpty() || !slots.checkIsIndex(position) || input == null || inputLength == 0) {
+            return reportInsertion(result, position, 0, inputLength);
         }
 
         showHardcodedTail = true;
+        version++;
 
         int cursorPosition = position;
         Slot slotCandidate = slots.getSlot(position);
+        int slotCandidateIndex = position;
 
-        if (forbidInputWhenFilled && filledFrom(slotCandidate)) {
-            return position;
+        if (forbidInputWhenFilled && filledFrom(position)) {
+            return reportInsertion(result, position, 0, inputLength);
         }
 
-        Deque<Character> inStack = dequeFrom(input);
+        // single instance is reused for all the characters of the input
+        final SlotIndexOffset slotForInputIndex = new SlotIndexOffset();
+        int consumed = 0;
 
-        while (!inStack.isEmpty()) {
+        for (int i = 0; i < inputLength; i++) {
+            if (terminated && slotCandidate == null) {
+                // no slots left to take the rest of the input
+                break;
+            }
 
-            char newValue = inStack.pop();
+            final char newValue = input.charAt(i);
 
             // find index offset to the next slot we can input current character to
-            final SlotIndexOffset slotForInputIndex = validSlotIndexOffset(slotCandidate, newValue);
+            validSlotIndexOffset(slotCandidate != null ? slotCandidateIndex : slots.size(), newValue, slotForInputIndex);
 
             // if there were any non-hardcoded slots skipped while looking for next slot offset
             // and we don't allow 'spots' in the input - we should skip newValue
@@ -257,11 +415,13 @@ public class MaskImpl implements Mask {
             if (slotForInput != null) {
                 slotCandidate = slotForInput;
                 final int insertOffset = slotCandidate.setValue(newValue, slotForInputIndex.indexOffset > 0);
+                consumed++;
 
                 cursorPosition += insertOffset;
                 slotCandidate = slots.getSlot(cursorPosition);
+                slotCandidateIndex = cursorPosition;
 
-                if (!terminated && emptySlotsOnTail() < 1) {
+                if (!terminated && !hasEmptySlotOnTail()) {
                     extendTail(1);
                 }
             }
@@ -280,21 +440,199 @@ public class MaskImpl implements Mask {
         }
 
         // allow hardcoded tail be visible only if we've inserted at the end of the input
-        final Slot nextSlot = slots.getSlot(cursorPosition);
-        showHardcodedTail = nextSlot == null || !nextSlot.anyInputToTheRight();
+        showHardcodedTail = cursorPosition > getLastInputIndex();
+        version++;
+
+        return reportInsertion(result, cursorPosition, consumed, inputLength - consumed);
+    }
+
+    @Override
+    public int removeRange(final int start, final int end) {
+        return end > start ? removeBackwards(end - 1, end - start) : start;
+    }
+
+    @Override
+    public int replace(final int start, final int end, @Nullable final CharSequence text) {
+        final int textLength = text == null ? 0 : text.length();
+
+        if (canReplaceInPlace(start, end, text)) {
+            final int overwritten = Math.min(textLength, end - start);
+            for (int i = 0; i < overwritten; i++) {
+                slots.replaceValueAt(start + i, text.charAt(i));
+            }
+
+            // the input after the range is moved once by the difference of the lengths
+            if (textLength < end - start) {
+                slots.removeValuesRange(start + textLength, end);
+            } else if (textLength > end - start && end < slots.size()) {
+                return insertAt(end, text.subSequence(overwritten, textLength));
+            }
+
+            // the same cursor position as insertion of the text would give
+            int cursorPosition = start + overwritten;
+            final Slot next = slots.getSlot(cursorPosition);
+            if (next != null) {
+                cursorPosition += Math.max(next.hardcodedSequenceEndIndex(), 0);
+            }
 
+            showHardcodedTail = cursorPosition > getLastInputIndex();
+            version++;
+            return cursorPosition;
+        }
+
+        // the input after the range is pulled to the left and then pushed back
+        int cursorPosition = start;
+        if (end > start) {
+            cursorPosition = removeBackwardsWithoutHardcoded(end - 1, end - start);
+        }
+        if (textLength > 0) {
+            cursorPosition = insertAt(start, text);
+        }
         return cursorPosition;
     }
 
-    private int emptySlotsOnTail() {
-        int count = 0;
-        Slot slot = slots.getLastSlot();
-        while (slot != null && slot.getValue() == null) {
-            count++;
-            slot = slot.getPrevSlot();
+    /**
+     * Checks whether removing the range and inserting the text would end up with the text put
+     * instead of the range and the input after it moved by the difference of their lengths.
+     * That's the case when the range and all the input after it are kept by slots with default
+     * rules and no interpreter, the range accepts the text and all the slots accept the input
+     * after the range: removal pulls the input to the left through them and insertion pushes it
+     * back. Hardcoded slots on the way are skipped in both directions as long as the input doesn't
+     * match their values. The part of the text longer than the range is inserted as usual.
+     */
+    private boolean canReplaceInPlace(final int start, final int end, @Nullable final CharSequence text) {
+        if (text == null || !terminated || forbidInputWhenFilled
+                || start < 0 || end > slots.size() || start >= end || text.length() == 0) {
+            return false;
         }
 
-        return count;
+        final int lastInputIndex = getLastInputIndex();
+        if (lastInputIndex < end - 1) {
+            return false;
+        }
+
+        for (int index = start; index <= lastInputIndex; index++) {
+            final Slot slot = slots.getSlot(index);
+
+            if (slot.hardcoded()) {
+                if (index < end || slot.getValueInterpreter() != null) {
+                    return false;
+                }
+                continue;
+            }
+
+            if (slot.getFlags() != Slot.RULES_DEFAULT
+                    || slot.getValueInterpreter() != null
+                    || !slots.hasValueAt(index)) {
+                return false;
+            }
+
+            if (index < end && index - start < text.length() && !slot.canInsertHere(text.charAt(index - start))) {
+                return false;
+            }
+        }
+
+        return movedValuesFit(start, end, lastInputIndex, true);
+    }
+
+    /**
+     * Checks that the values of non-hardcoded slots from {@code end} to {@code lastIndex}, i.e.
+     * the values that are pulled to the left when the range before {@code end} is removed, are
+     * accepted by every non-hardcoded slot from {@code start} to {@code lastIndex}. Pulled values
+     * are validated by each slot on their way, so that's enough for them to end up on the same
+     * place as if they were pulled one position at a time.
+     * <p>
+     * Slots of a mask usually have a few distinct sets of validators (equal sets are shared, see
+     * {@link ru.tinkoff.decoro.slots.SlotInterner}), so each value is checked once against each
+     * distinct set rather than against each slot on its way.
+     *
+     * @param pushedBack whether the values are pushed back to the right afterwards, so they
+     *                   shouldn't match values of hardcoded slots after {@code end}
+     * @return false if any of the values doesn't fit
+     */
+    private boolean movedValuesFit(final int start, final int end, final int lastIndex, final boolean pushedBack) {
+        int validatorsCount = 0;
+        int hardcodedCount = 0;
+        for (int index = start; index <= lastIndex; index++) {
+            final Slot slot = slots.getSlot(index);
+
+            if (slot.hardcoded()) {
+                if (pushedBack && index >= end) {
+                    final char value = slots.getValueAt(index);
+                    if (indexOf(movedThroughHardcoded, hardcodedCount, value) < 0) {
+                        if (hardcodedCount == movedThroughHardcoded.length) {
+                            movedThroughHardcoded = Arrays.copyOf(movedThroughHardcoded, hardcodedCount * 2);
+                        }
+                        movedThroughHardcoded[hardcodedCount++] = value;
+                    }
+                }
+                continue;
+            }
+
+            final SlotValidatorSet validators = slot.peekValidators();
+            if (validators != null && indexOf(movedThroughValidators, validatorsCount, validators) < 0) {
+                if (validatorsCount == movedThroughValidators.length) {
+                    movedThroughValidators = Arrays.copyOf(movedThroughValidators, validatorsCount * 2);
+                }
+                movedThroughValidators[validatorsCount++] = validators;
+            }
+        }
+
+        boolean fit = true;
+        for (int index = end; fit && index <= lastIndex; index++) {
+            if (!slots.hasValueAt(index) || slots.getSlot(index).hardcoded()) {
+                continue;
+            }
+
+            final char value = slots.getValueAt(index);
+            fit = indexOf(movedThroughHardcoded, hardcodedCount, value) < 0;
+            for (int i = 0; fit && i < validatorsCount; i++) {
+                fit = movedThroughValidators[i].validate(value);
+            }
+        }
+
+        // don't keep validators of the slots which may be removed later
+        Arrays.fill(movedThroughValidators, 0, validatorsCount, null);
+        return fit;
+    }
+
+    private static int indexOf(final char[] values, final int count, final char value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Looks for a set validating the same way as {@code validators}: the same set or an equal set
+     * of the same class (a subclass may validate differently from an equal plain set).
+     */
+    private static int indexOf(final SlotValidatorSet[] sets, final int count, final SlotValidatorSet validators) {
+        for (int i = 0; i < count; i++) {
+            if (sets[i] == validators) {
+                return i;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (sets[i].getClass() == validators.getClass() && sets[i].equals(validators)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int reportInsertion(@Nullable InsertionResult result, int cursorPosition, int consumed, int dropped) {
+        if (result != null) {
+            result.set(cursorPosition, consumed, dropped);
+        }
+        return cursorPosition;
+    }
+
+    private boolean hasEmptySlotOnTail() {
+        return !slots.isEmpty() && !slots.hasValueAt(slots.size() - 1);
     }
 
     /**
@@ -370,6 +708,7 @@ public class MaskImpl implements Mask {
     @Override
     public void setShowingEmptySlots(boolean showingEmptySlots) {
         this.showingEmptySlots = showingEmptySlots;
+        version++;
     }
 
     @NonNull
@@ -385,6 +724,7 @@ public class MaskImpl implements Mask {
         }
 
         this.placeholder = placeholder;
+        version++;
     }
 
     @Override
@@ -396,6 +736,7 @@ public class MaskImpl implements Mask {
     @Override
     public void setHideHardcodedHead(boolean shouldHideHardcodedHead) {
         this.hideHardcodedHead = shouldHideHardcodedHead;
+        version++;
 
         if (!hasUserInput()) {
             showHardcodedTail = !hideHardcodedHead;
@@ -420,21 +761,27 @@ public class MaskImpl implements Mask {
             throw new IndexOutOfBoundsException(String.format(Locale.getDefault(), "Mask size: %d, passed index: %d", getSize(), cursorPosition));
         }
 
-        Slot slot;
-        if (cursorPosition == getSize()) {
-            slot = slots.getLastSlot();
-        } else {
-            slot = slots.getSlot(cursorPosition);
+        // decoration slot right at the cursor is taken into account as well
+        return cursorPosition - slots.decorationsBefore(Math.min(cursorPosition + 1, getSize()));
+    }
+
+    @Override
+    public int toUnformattedPosition(int formattedPosition) {
+        if (formattedPosition < 0 || getSize() < formattedPosition) {
+            throw new IndexOutOfBoundsException(String.format(Locale.getDefault(), "Mask size: %d, passed index: %d", getSize(), formattedPosition));
         }
 
-        do {
-            if (slot.hasTag(Slot.TAG_DECORATION)) {
-                cursorPosition--;
-            }
-            slot = slot.getPrevSlot();
-        } while (slot != null);
+        return formattedPosition - slots.decorationsBefore(formattedPosition);
+    }
 
-        return cursorPosition;
+    @Override
+    public int toFormattedPosition(int unformattedPosition) {
+        final int unformattedSize = getSize() - slots.decorationsBefore(getSize());
+        if (unformattedPosition < 0 || unformattedSize < unformattedPosition) {
+            throw new IndexOutOfBoundsException(String.format(Locale.getDefault(), "Unformatted mask size: %d, passed index: %d", unformattedSize, unformattedPosition));
+        }
+
+        return slots.nonDecorationsEnd(unformattedPosition);
     }
 
     public boolean isTerminated() {
@@ -445,24 +792,49 @@ public class MaskImpl implements Mask {
      * Looks for a slot to insert {@code value}. Search moves to the right from the specified one
      * (including it). While searching it checks whether the're any non-hardcoded slots that cannot
      * accept pending input if such slots are found it is marked in a resulting object.
+     * <p>
+     * Slots known to reject the whole class of the value are skipped without asking them (see
+     * {@link SlotsList#nextNotRejecting(int, char)}). If we don't allow 'spots' in the input search
+     * stops on the first skipped non-hardcoded slot since the value will be skipped anyway.
      *
-     * @param slot  slot from where to start
-     * @param value value to be inserted to slot
-     * @return wrapper around index offset to the found slot and flag showing did search skip any
-     * non-hardcoded slots
+     * @param index  index of the slot from where to start
+     * @param value  value to be inserted to slot
+     * @param result wrapper to be filled with index offset to the found slot and flag showing did
+     *               search skip any non-hardcoded slots. Previous content is discarded
      */
-    private SlotIndexOffset validSlotIndexOffset(Slot slot, final char value) {
-        final SlotIndexOffset result = new SlotIndexOffset();
+    private void validSlotIndexOffset(final int index, final char value, final SlotIndexOffset result) {
+        result.indexOffset = 0;
+        result.nonHarcodedSlotSkipped = false;
+
+        int candidate = index;
+        while (candidate < slots.size()) {
+            final int notRejecting = slots.nextNotRejecting(candidate, value);
+            if (notRejecting > candidate) {
+                // rejecting slots are never hardcoded
+                result.nonHarcodedSlotSkipped = true;
+                candidate = notRejecting;
+            }
+
+            if (result.nonHarcodedSlotSkipped && !showingEmptySlots) {
+                break;
+            }
+
+            if (candidate >= slots.size()) {
+                break;
+            }
+
+            final Slot slot = slots.getSlot(candidate);
+            if (slot.canInsertHere(value)) {
+                break;
+            }
 
-        while (slot != null && !slot.canInsertHere(value)) {
-            if (!result.nonHarcodedSlotSkipped && !slot.hardcoded()) {
+            if (!slot.hardcoded()) {
                 result.nonHarcodedSlotSkipped = true;
             }
-            slot = slot.getNextSlot();
-            result.indexOffset++;
+            candidate++;
         }
 
-        return result;
+        result.indexOffset = candidate - index;
     }
 
     /**
@@ -478,7 +850,7 @@ public class MaskImpl implements Mask {
             // create a copy of the last slot and make it the last one
             final Slot inserted = slots.insertSlotAt(slots.size(), slots.getLastSlot());
             inserted.setValue(null);
-            inserted.withTags(TAG_EXTENSION);
+            inserted.withTags(Slot.TAG_EXTENSION);
         }
     }
 
@@ -487,55 +859,41 @@ public class MaskImpl implements Mask {
             return;
         }
 
-        Slot currentSlot = slots.getLastSlot();
-        Slot prevSlot = currentSlot.getPrevSlot();
-        while (isAllowedToRemoveSlot(currentSlot, prevSlot)) {
-            slots.removeSlotAt(slots.size() - 1);
-            currentSlot = prevSlot;
-            prevSlot = prevSlot.getPrevSlot();
+        int newSize = slots.size();
+        while (isAllowedToRemoveSlot(newSize - 1)) {
+            newSize--;
         }
+        slots.truncate(newSize);
     }
 
-    private boolean isAllowedToRemoveSlot(Slot removalCandidate, Slot previousSlot) {
-        return removalCandidate.hasTag(TAG_EXTENSION) &&
-                previousSlot.hasTag(TAG_EXTENSION) &&
-                removalCandidate.getValue() == null &&
-                previousSlot.getValue() == null;
-    }
-
-    /**
-     * Creates deque (double-side queue) of CharSequence
-     *
-     * @param in char sequence to be converted to deque
-     * @return characters deque
-     */
-    private Deque<Character> dequeFrom(CharSequence in) {
-        if (in == null) {
-            return null;
-        }
-
-        final Deque<Character> out = new ArrayDeque<>(in.length());
-
-        for (int i = in.length() - 1; i >= 0; i--) {
-            out.push(in.charAt(i));
-        }
-
-        return out;
+    private boolean isAllowedToRemoveSlot(int removalCandidatePosition) {
+        final int previousPosition = removalCandidatePosition - 1;
+        return previousPosition >= 0 &&
+                slots.getSlot(removalCandidatePosition).hasTag(Slot.TAG_EXTENSION) &&
+                slots.getSlot(previousPosition).hasTag(Slot.TAG_EXTENSION) &&
+                !slots.hasValueAt(removalCandidatePosition) &&
+                !slots.hasValueAt(previousPosition);
     }
 
     private int removeBackwardsInner(int position, int count, boolean removeHardcoded) {
         int cursorPosition = position;
 
-        // go back fom position and remove any non-hardcoded characters
-        for (int i = 0; i < count; i++) {
-            if (slots.checkIsIndex(cursorPosition)) {
-                final Slot s = slots.getSlot(cursorPosition);
-                if (s != null && (!s.hardcoded() || (removeHardcoded && count == 1))) {
-                    cursorPosition += s.setValue(null);
+        if (canRemoveInBulk(position - count + 1, position + 1)) {
+            // the same as removing values one by one below
+            slots.removeValuesRange(position - count + 1, position + 1);
+            cursorPosition = position - count;
+        } else {
+            // go back fom position and remove any non-hardcoded characters
+            for (int i = 0; i < count; i++) {
+                if (slots.checkIsIndex(cursorPosition)) {
+                    final Slot s = slots.getSlot(cursorPosition);
+                    if (s != null && (!s.hardcoded() || (removeHardcoded && count == 1))) {
+                        cursorPosition += s.setValue(null);
+                    }
                 }
-            }
 
-            cursorPosition--;
+                cursorPosition--;
+            }
         }
 
         cursorPosition++;
@@ -553,6 +911,7 @@ public class MaskImpl implements Mask {
 
         // show hardcoded tail only is this tail is hardcode head and hideHardcodedHead is on
         showHardcodedTail = tmpPosition <= 0 && !hideHardcodedHead;
+        version++;
 
         if (tmpPosition > 0) {
             // we need move cursor to one step behind in case when we start delete from hardcoded symbol
@@ -567,6 +926,39 @@ public class MaskImpl implements Mask {
     }
 
 
+    /**
+     * Checks whether values of the range can be removed in a single pass. Removal of each value
+     * pulls all the following values one slot to the left (skipping hardcoded slots). If all the
+     * slots on the way accept the pulled values then removal of the whole range just moves the
+     * following values to the left by the number of removed ones.
+     * Slots of the range shouldn't have interpreters (which may turn removal into input) or
+     * {@link Slot#RULE_FORBID_CURSOR_MOVE_LEFT} rule (which moves removal position).
+     */
+    private boolean canRemoveInBulk(final int start, final int end) {
+        if (end - start < 2 || start < 0 || end > slots.size()) {
+            return false;
+        }
+
+        final int lastIndex = Math.max(end - 1, getLastInputIndex());
+        for (int index = start; index <= lastIndex; index++) {
+            final Slot slot = slots.getSlot(index);
+            if (slot.hardcoded()) {
+                continue;
+            }
+
+            final int flags = slot.getFlags();
+            if ((flags & Slot.RULE_INPUT_MOVES_INPUT) != 0) {
+                return false;
+            }
+
+            if (index < end && ((flags & Slot.RULE_FORBID_CURSOR_MOVE_LEFT) != 0 || slot.getValueInterpreter() != null)) {
+                return false;
+            }
+        }
+
+        return movedValuesFit(start, end, lastIndex, false);
+    }
+
     private static class SlotIndexOffset {
 
         // offset from current slot to any other slot
@@ -576,6 +968,46 @@ public class MaskImpl implements Mask {
         boolean nonHarcodedSlotSkipped;
     }
 
+    /**
+     * Live view of the mask contents. Characters are read from the slots, unformatted positions
+     * are mapped to slots with the decorations index.
+     */
+    private class ContentView implements CharSequence {
+
+        private final boolean allowDecoration;
+
+        ContentView(boolean allowDecoration) {
+            this.allowDecoration = allowDecoration;
+        }
+
+        @Override
+        public int length() {
+            return renderedLength(allowDecoration);
+        }
+
+        @Override
+        public char charAt(int index) {
+            final int length = length();
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.format(Locale.getDefault(), "Length: %d, passed index: %d", length, index));
+            }
+
+            final int slotIndex = allowDecoration ? index : slots.nonDecorationsEnd(index + 1) - 1;
+            return renderedCharAt(slotIndex, getPlaceholder());
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return MaskImpl.this.toString(allowDecoration);
+        }
+    }
+
     @Override
     public int describeContents() {
         return 0;
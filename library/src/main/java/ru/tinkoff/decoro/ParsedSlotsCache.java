@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
+import ru.tinkoff.decoro.parser.SlotsParser;
+import ru.tinkoff.decoro.parser.UnderscoreDigitSlotsParser;
+import ru.tinkoff.decoro.slots.Slot;
+
+/**
+ * Process-wide cache of slots parsed from raw masks. A mask copies the slots it is created from,
+ * so slots of the cache are used as templates and are never changed. The least recently used
+ * templates are dropped when there're more than {@link #setMaxSize(int) max size} of them. By
+ * default the cache keeps {@link #DEFAULT_MAX_SIZE} masks, e.g. phone masks of all the countries.
+ * <p>
+ * Slots parsed by the parsers of this library depend on a raw mask only, so they are shared by
+ * all the instances of a parser class. Other parsers are expected to give the same slots for the
+ * same raw mask, their results are kept for each parser instance. Such a parser is referenced
+ * weakly, so the cache doesn't keep it (and whatever it refers to) alive.
+ *
+ * @author Mikhail Artemev
+ */
+public final class ParsedSlotsCache {
+
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    // guarded by TEMPLATES
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    private static final Map<Key, Slot[]> TEMPLATES = new LinkedHashMap<Key, Slot[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Slot[]> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Sets how many parsed masks the cache keeps. The least recently used masks above the new
+     * size are dropped right away.
+     *
+     * @param maxSize number of masks to keep, zero disables the cache
+     */
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size cannot be negative: " + maxSize);
+        }
+
+        synchronized (TEMPLATES) {
+            ParsedSlotsCache.maxSize = maxSize;
+            final Iterator<Key> eldest = TEMPLATES.keySet().iterator();
+            while (TEMPLATES.size() > maxSize) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * @return slots parsed from {@code rawMask} by {@code parser}, cached ones if the mask has
+     * been parsed already. They should not be changed
+     */
+    @NonNull
+    public static Slot[] parseSlots(@NonNull SlotsParser parser, @NonNull String rawMask) {
+        final Key key = new Key(parser, rawMask);
+        synchronized (TEMPLATES) {
+            final Slot[] cached = TEMPLATES.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // parse outside of the lock, at worst the same mask is parsed twice
+        final Slot[] slots = parser.parseSlots(rawMask);
+        synchronized (TEMPLATES) {
+            TEMPLATES.put(key, slots);
+        }
+        return slots;
+    }
+
+    static void clear() {
+        synchronized (TEMPLATES) {
+            TEMPLATES.clear();
+        }
+    }
+
+    private static boolean dependsOnRawMaskOnly(SlotsParser parser) {
+        final Class<?> parserClass = parser.getClass();
+        return parserClass == UnderscoreDigitSlotsParser.class
+                || parserClass == PhoneNumberUnderscoreSlotsParser.class;
+    }
+
+    private static final class Key {
+
+        // parser class or a weak reference to the parser
+        private final Object parser;
+        private final int parserHash;
+        private final String rawMask;
+
+        Key(SlotsParser parser, String rawMask) {
+            if (dependsOnRawMaskOnly(parser)) {
+                this.parser = parser.getClass();
+                this.parserHash = parser.getClass().hashCode();
+            } else {
+                this.parser = new WeakReference<SlotsParser>(parser);
+                this.parserHash = System.identityHashCode(parser);
+            }
+            this.rawMask = rawMask;
+        }
+
+        private Object parser() {
+            return parser instanceof WeakReference ? ((WeakReference<?>) parser).get() : parser;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Key that = (Key) o;
+            final Object parser = parser();
+
+            // keys of collected parsers are equal to themselves only
+            return parser != null && parser == that.parser() && rawMask.equals(that.rawMask);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * parserHash + rawMask.hashCode();
+        }
+    }
+
+    private ParsedSlotsCache() {
+    }
+}
@@ -22,25 +22,35 @@ import androidx.annotation.NonNull;
 
 import java.lang.reflect.Array;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotValueStorage;
 
 /**
+ * List of slots of a mask. Slots are kept in a contiguous array, so an access by index takes
+ * constant time, while neighbouring slots are still linked with each other (see
+ * {@link Slot#getNextSlot()} and {@link Slot#getPrevSlot()}) since slots rely on these links
+ * when shifting their values.
+ * <p>
+ * Values of the slots are kept in a {@link SlotValueStorage} owned by the list.
+ *
  * @author Mikhail Artemev
  */
 class SlotsList implements Iterable<Slot>, Parcelable {
 
+    private static final Slot[] EMPTY_SLOTS = new Slot[0];
+
     private int size = 0;
 
-    private Slot firstSlot;
-    private Slot lastSlot;
+    private Slot[] slots = EMPTY_SLOTS;
+
+    private final SlotValueStorage storage = new SlotValueStorage();
 
     public static SlotsList ofArray(@NonNull Slot[] slots) {
         SlotsList list = new SlotsList();
 
-        list.size = slots.length;
-
-        if (list.size == 0) {
+        if (slots.length == 0) {
             return list;
         }
 
@@ -50,24 +60,23 @@ class SlotsList implements Iterable<Slot>, Parcelable {
     }
 
     private static void linkSlots(@NonNull Slot[] slots, SlotsList list) {
-        list.firstSlot = new Slot(slots[0]);
-        Slot prev = list.firstSlot;
-
-        if (list.size == 1) {
-            list.lastSlot = list.firstSlot;
-        }
+        list.slots = new Slot[slots.length];
+        list.size = slots.length;
 
-        // link slots
-        for (int i = 1; i < slots.length; i++) {
-            Slot next = new Slot(slots[i]);
-            prev.setNextSlot(next);
-            next.setPrevSlot(prev);
+        Slot prev = null;
+        for (int i = 0; i < slots.length; i++) {
+            final Slot next = new Slot(slots[i]);
+            list.slots[i] = next;
+            list.storage.insertEmpty(i);
+            list.storage.attach(next, i);
+
+            // link slots
+            if (prev != null) {
+                prev.setNextSlot(next);
+                next.setPrevSlot(prev);
+            }
 
             prev = next;
-
-            if (i == slots.length - 1) {
-                list.lastSlot = next;
-            }
         }
     }
 
@@ -76,21 +85,7 @@ class SlotsList implements Iterable<Slot>, Parcelable {
 
     public SlotsList(@NonNull SlotsList list) {
         if (!list.isEmpty()) {
-            Slot previous = null;
-            for (Slot slot : list) {
-                final Slot newSlot = new Slot(slot);
-                if (size == 0) {
-                    this.firstSlot = newSlot;
-                } else {
-                    previous.setNextSlot(newSlot);
-                    newSlot.setPrevSlot(previous);
-                }
-
-                previous = newSlot;
-                size++;
-            }
-
-            this.lastSlot = previous;
+            linkSlots(list.toArray(), this);
         }
     }
 
@@ -103,27 +98,7 @@ class SlotsList implements Iterable<Slot>, Parcelable {
             return null;
         }
 
-        Slot result;
-
-        if (index < (size >> 1)) {
-            // first half of a list
-            result = firstSlot;
-            for (int i = 0; i < index; i++) {
-                result = result.getNextSlot();
-            }
-        } else {
-            // second half of a list
-            result = lastSlot;
-            for (int i = size - 1; i > index; i--) {
-                result = result.getPrevSlot();
-            }
-        }
-
-        if (result == null) {
-            throw new IllegalStateException("Slot inside the mask should not be null. But it is.");
-        }
-
-        return result;
+        return slots[index];
     }
 
     /**
@@ -141,39 +116,34 @@ class SlotsList implements Iterable<Slot>, Parcelable {
 
         final Slot toInsert = new Slot(slot);
 
-        Slot currentSlot = getSlot(position);
-        Slot leftNeighbour;
-        Slot rightNeighbour = null;
-        if (currentSlot == null) {
-            // this can happen only when position == size.
-            // it means we want to add the slot on the tail
-            leftNeighbour = lastSlot;
-        } else {
-            leftNeighbour = currentSlot.getPrevSlot();
-            rightNeighbour = currentSlot;
+        ensureCapacity(size + 1);
+
+        if (position < size) {
+            System.arraycopy(slots, position, slots, position + 1, size - position);
         }
 
+        slots[position] = toInsert;
+        size++;
+
+        storage.insertEmpty(position);
+        attachSlots(position);
+
+        // left neighbour is only available for not-first slots
+        // and right neighbour is only available for non-last slots
+        final Slot leftNeighbour = getSlot(position - 1);
+        final Slot rightNeighbour = getSlot(position + 1);
+
         toInsert.setNextSlot(rightNeighbour);
         toInsert.setPrevSlot(leftNeighbour);
 
         if (rightNeighbour != null) {
-            // right neighbour is only available for non-last slots
             rightNeighbour.setPrevSlot(toInsert);
         }
 
         if (leftNeighbour != null) {
-            // left neighbour is only available for not-first slots
             leftNeighbour.setNextSlot(toInsert);
         }
 
-        if (position == 0) {
-            firstSlot = toInsert;
-        } else if (position == size) {
-            lastSlot = toInsert;
-        }
-
-        size++;
-
         return toInsert;
     }
 
@@ -181,30 +151,64 @@ class SlotsList implements Iterable<Slot>, Parcelable {
         if (!checkIsIndex(position)) {
             throw new IndexOutOfBoundsException("Slot position should be inside the slots list");
         }
-        return removeSlot(getSlot(position));
+        return removeSlotAtInner(position);
     }
 
     public Slot removeSlot(final Slot slotToRemove) {
-        if (slotToRemove == null || !contains(slotToRemove)) {
+        final int position = indexOf(slotToRemove);
+        if (slotToRemove == null || position < 0) {
             return null;
         }
 
+        return removeSlotAtInner(position);
+    }
+
+    /**
+     * Removes all the slots starting from {@code newSize} at once.
+     *
+     * @param newSize number of slots to keep, should be >= 0 and <= size
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || size < newSize) {
+            throw new IndexOutOfBoundsException("New size should be inside the slots list");
+        }
+
+        if (newSize == size) {
+            return;
+        }
+
+        for (int i = newSize; i < size; i++) {
+            storage.detach(slots[i]);
+            slots[i] = null;
+        }
+
+        if (newSize > 0) {
+            slots[newSize - 1].setNextSlot(null);
+        }
+
+        storage.truncate(newSize);
+        size = newSize;
+    }
+
+    private Slot removeSlotAtInner(final int position) {
+        final Slot slotToRemove = slots[position];
         Slot left = slotToRemove.getPrevSlot();
         Slot right = slotToRemove.getNextSlot();
 
         if (left != null) {
             left.setNextSlot(right);
-        } else {
-            firstSlot = right;
         }
 
         if (right != null) {
             right.setPrevSlot(left);
-        } else {
-            lastSlot = left;
         }
 
-        size--;
+        storage.detach(slotToRemove);
+        storage.delete(position);
+
+        System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+        slots[--size] = null;
+        attachSlots(position);
 
         return slotToRemove;
     }
@@ -216,16 +220,14 @@ class SlotsList implements Iterable<Slot>, Parcelable {
 
         // iterate back because by default slots will try to pull new value from next slot
         // when someone try to remove their value
-        Slot slot = lastSlot;
-        while (slot != null) {
-            slot.setValue(null);
-            slot = slot.getPrevSlot();
+        for (int i = size - 1; i >= 0; i--) {
+            slots[i].setValue(null);
         }
     }
 
     @Override
     public Iterator<Slot> iterator() {
-        return new SlotsIterator(firstSlot);
+        return new SlotsIterator();
     }
 
     @NonNull
@@ -243,11 +245,7 @@ class SlotsList implements Iterable<Slot>, Parcelable {
             array = (T[]) Array.newInstance(array.getClass().getComponentType(), size);
         }
 
-        int index = 0;
-        Object[] result = array;
-        for (Slot slot : this) {
-            result[index++] = slot;
-        }
+        System.arraycopy(slots, 0, array, 0, size);
 
         return array;
     }
@@ -265,9 +263,8 @@ class SlotsList implements Iterable<Slot>, Parcelable {
         final SlotsList list = (SlotsList) obj;
         if (list.size() != size()) return false;
 
-        final Iterator<Slot> ourIterator = iterator();
-        for (Slot otherSlot : list) {
-            if (!ourIterator.next().equals(otherSlot)) {
+        for (int i = 0; i < size; i++) {
+            if (!slots[i].equals(list.slots[i])) {
                 return false;
             }
         }
@@ -275,6 +272,79 @@ class SlotsList implements Iterable<Slot>, Parcelable {
         return true;
     }
 
+    /**
+     * @return counter bumped on every change of slots values, positions or rules
+     * @see SlotValueStorage#version()
+     */
+    public int getVersion() {
+        return storage.version();
+    }
+
+    public boolean hasValueAt(int index) {
+        return storage.hasValue(index);
+    }
+
+    /**
+     * @return index of the last slot holding user input (i.e. non-hardcoded slot with a value)
+     * or -1 if there's no user input at all.
+     */
+    public int getLastInputIndex() {
+        return storage.lastInputIndex();
+    }
+
+    /**
+     * @return index of the first slot at or after {@code index} that may accept {@code value}.
+     * Slots known to reject the value are skipped. Returns {@link #size()} if there's no such slot
+     */
+    public int nextNotRejecting(int index, char value) {
+        return storage.nextNotRejecting(index, value);
+    }
+
+    /**
+     * @return index of the last empty slot without {@link Slot#TAG_EXTENSION} tag or -1 if there's
+     * no such slot.
+     */
+    public int getLastHoleIndex() {
+        return storage.lastHoleIndex();
+    }
+
+    /**
+     * @return number of {@link Slot#TAG_DECORATION decoration} slots before {@code index}
+     * (exclusive)
+     */
+    public int decorationsBefore(int index) {
+        return storage.decorationsBefore(index);
+    }
+
+    /**
+     * @return the smallest index having {@code count} non-decoration slots before it
+     */
+    public int nonDecorationsEnd(int count) {
+        return storage.nonDecorationsEnd(count);
+    }
+
+    /**
+     * @return value of the slot on the specified position. Result makes sense only if
+     * {@link #hasValueAt(int)} returns true for the position.
+     */
+    public char getValueAt(int index) {
+        return storage.getValue(index);
+    }
+
+    /**
+     * @see SlotValueStorage#removeRange(int, int)
+     */
+    public void removeValuesRange(int start, int end) {
+        storage.removeRange(start, end);
+    }
+
+    /**
+     * @see SlotValueStorage#replaceValue(int, char)
+     */
+    public void replaceValueAt(int index, char value) {
+        storage.replaceValue(index, value);
+    }
+
     public boolean isEmpty() {
         return size == 0;
     }
@@ -284,29 +354,53 @@ class SlotsList implements Iterable<Slot>, Parcelable {
     }
 
     public Slot getFirstSlot() {
-        return firstSlot;
+        return getSlot(0);
     }
 
-    public void setFirstSlot(Slot firstSlot) {
-        this.firstSlot = firstSlot;
+    public Slot getLastSlot() {
+        return getSlot(size - 1);
     }
 
-    public Slot getLastSlot() {
-        return lastSlot;
+    /**
+     * Binds slots starting from {@code fromPosition} to their current positions in the storage.
+     */
+    private void attachSlots(int fromPosition) {
+        for (int i = fromPosition; i < size; i++) {
+            storage.attach(slots[i], i);
+        }
     }
 
-    public void setLastSlot(Slot lastSlot) {
-        this.lastSlot = lastSlot;
+    /**
+     * @return position of the slot in the list or -1. Every slot of the list is attached to the
+     * list's storage and knows its position there, so the list isn't scanned.
+     */
+    private int indexOf(Slot o) {
+        if (o == null) {
+            return -1;
+        }
+
+        final int index = storage.indexOf(o);
+        return checkIsIndex(index) && slots[index] == o ? index : -1;
     }
 
-    private boolean contains(Slot o) {
-        for (Slot slot : this) {
-            if (slot == o) {
-                return true;
-            }
+    /**
+     * Grows the underlying array (by half of its current length) so it could hold at least
+     * {@code minCapacity} slots. Since tail of a non-terminated mask is extended slot by slot,
+     * growing geometrically keeps appending to the tail amortized O(1).
+     */
+    private void ensureCapacity(int minCapacity) {
+        if (slots.length >= minCapacity) {
+            return;
+        }
+
+        int newCapacity = slots.length + (slots.length >> 1);
+        if (newCapacity < minCapacity) {
+            newCapacity = Math.max(minCapacity, 4);
         }
 
-        return false;
+        final Slot[] grown = new Slot[newCapacity];
+        System.arraycopy(slots, 0, grown, 0, size);
+        slots = grown;
     }
 
     @Override
@@ -323,9 +417,9 @@ class SlotsList implements Iterable<Slot>, Parcelable {
     }
 
     protected SlotsList(Parcel in) {
-        this.size = in.readInt();
+        final int size = in.readInt();
         if (size > 0) {
-            Slot[] slots = new Slot[this.size];
+            Slot[] slots = new Slot[size];
             in.readTypedArray(slots, Slot.CREATOR);
             linkSlots(slots, this);
         }
@@ -343,28 +437,22 @@ class SlotsList implements Iterable<Slot>, Parcelable {
         }
     };
 
-    private static class SlotsIterator implements Iterator<Slot> {
+    private class SlotsIterator implements Iterator<Slot> {
 
-        Slot nextSlot;
-
-        public SlotsIterator(Slot currentSlot) {
-            if (currentSlot == null) {
-                throw new IllegalArgumentException("Initial slot for iterator cannot be null");
-            }
-
-            this.nextSlot = currentSlot;
-        }
+        int nextIndex = 0;
 
         @Override
         public boolean hasNext() {
-            return nextSlot != null;
+            return nextIndex < size;
         }
 
         @Override
         public Slot next() {
-            Slot current = nextSlot;
-            nextSlot = nextSlot.getNextSlot();
-            return current;
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return slots[nextIndex++];
         }
 
         @Override
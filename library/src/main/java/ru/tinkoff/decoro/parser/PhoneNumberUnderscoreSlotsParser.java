@@ -20,36 +20,58 @@ import androidx.annotation.NonNull;
 
 import ru.tinkoff.decoro.slots.PredefinedSlots;
 import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotInterner;
 import ru.tinkoff.decoro.slots.SlotValidatorSet;
 import ru.tinkoff.decoro.slots.SlotValidators;
 
 /**
+ * Parses raw phone masks like "+7 (___) ___-__-__". Digits of the raw mask are hardcoded but
+ * can be input over: the first digit of a sequence replaces an input equal to it, so the input
+ * of a whole number including the country code is not doubled. Parser keeps no state, so
+ * a single instance can be used by any number of threads.
+ *
  * @author Mikhail Artemev
  */
 public class PhoneNumberUnderscoreSlotsParser extends UnderscoreDigitSlotsParser {
 
     private static final char PLUS_SIGN = '+';
+    private static final SlotValidatorSet DIGIT_VALIDATORS = SlotInterner.validators(new SlotValidators.DigitValidator());
 
-    private int rule;
+    private static final int FIRST_DIGIT_RULES = Slot.RULE_INPUT_MOVES_INPUT | Slot.RULE_INPUT_REPLACE;
+    private static final int NEXT_DIGIT_RULES = Slot.RULE_INPUT_MOVES_INPUT;
 
-    @NonNull
     @Override
-    public Slot[] parseSlots(@NonNull CharSequence rawMask) {
-        rule = Slot.RULE_INPUT_MOVES_INPUT | Slot.RULE_INPUT_REPLACE;
-        return super.parseSlots(rawMask);
+    protected Slot slotFromChar(@NonNull CharSequence rawMask, int index) {
+        final char character = rawMask.charAt(index);
+        if (character != SLOT_STUB && Character.isDigit(character) && followsDigit(rawMask, index)) {
+            return new Slot(NEXT_DIGIT_RULES, character, DIGIT_VALIDATORS);
+        }
+
+        return super.slotFromChar(rawMask, index);
     }
 
     @Override
     protected Slot slotFromNonUnderscoredChar(char character) {
         if (!Character.isDigit(character)) {
-            rule = Slot.RULE_INPUT_MOVES_INPUT | Slot.RULE_INPUT_REPLACE;
             final Slot hardcoded = PredefinedSlots.hardcodedSlot(character);
             return character == PLUS_SIGN ? hardcoded : hardcoded.withTags(Slot.TAG_DECORATION);
         }
 
-        final Slot slot = new Slot(rule, character, SlotValidatorSet.setOf(new SlotValidators.DigitValidator()));
-        rule = Slot.RULE_INPUT_MOVES_INPUT;
+        return new Slot(FIRST_DIGIT_RULES, character, DIGIT_VALIDATORS);
+    }
+
+    /**
+     * @return true if the closest character before {@code index} which is not a slot stub is
+     * a digit
+     */
+    private static boolean followsDigit(CharSequence rawMask, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            final char character = rawMask.charAt(i);
+            if (character != SLOT_STUB) {
+                return Character.isDigit(character);
+            }
+        }
 
-        return slot;
+        return false;
     }
 }
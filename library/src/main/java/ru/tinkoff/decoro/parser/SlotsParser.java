@@ -21,6 +21,10 @@ import androidx.annotation.NonNull;
 import ru.tinkoff.decoro.slots.Slot;
 
 /**
+ * Parses slots of a mask from its string representation. A parser is expected to give equal
+ * slots for equal raw masks: masks created by {@link ru.tinkoff.decoro.MaskFactoryImpl} reuse
+ * slots parsed once for each raw mask and parser.
+ *
  * @author Mikhail Artemev
  */
 public interface SlotsParser {
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ru.tinkoff.decoro.ParsedSlotsCache;
+import ru.tinkoff.decoro.slots.Slot;
+
+/**
+ * @author Mikhail Artemev
+ */
+public final class SlotsParsers {
+
+    /**
+     * Parses raw masks in parallel, e.g. to prepare masks of all the supported countries in
+     * advance. Each mask is parsed by a separate task on {@code executor} and all the tasks use
+     * the same {@code parser}. Parsers of this library keep no state so they can be used this
+     * way, a custom parser should be thread-safe as well.
+     * <p>
+     * Parsed slots are put to {@link ParsedSlotsCache}, so masks created afterwards for the same
+     * raw masks and parser don't parse them again. Masks already in the cache aren't parsed
+     * either. Parsed slots can be shared by any number of masks (see
+     * {@link ru.tinkoff.decoro.MaskDescriptor#ofSlots(Slot[])}) since a mask copies the slots
+     * it's created from, but they should not be changed.
+     *
+     * @param parser   parser to use
+     * @param rawMasks raw masks to parse
+     * @param executor executor to run parsing on
+     * @return slots of each distinct raw mask in order of {@code rawMasks}
+     * @throws InterruptedException if interrupted while waiting for the masks to be parsed
+     * @throws RuntimeException     if the parser failed to parse any of the masks. The first
+     *                              failure is rethrown after all the tasks are finished. An
+     *                              {@link Error} is rethrown as it is, a checked exception is
+     *                              wrapped
+     */
+    @NonNull
+    public static Map<String, Slot[]> parseAll(@NonNull final SlotsParser parser,
+                                               @NonNull final Collection<String> rawMasks,
+                                               @NonNull final Executor executor) throws InterruptedException {
+
+        final String[] masks = new LinkedHashSet<String>(rawMasks).toArray(new String[0]);
+        final Slot[][] results = new Slot[masks.length][];
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(masks.length);
+
+        for (int i = 0; i < masks.length; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        results[index] = ParsedSlotsCache.parseSlots(parser, masks[index]);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        // latch makes results written by the tasks visible here
+        done.await();
+
+        final Throwable failed = failure.get();
+        if (failed instanceof RuntimeException) {
+            throw (RuntimeException) failed;
+        } else if (failed instanceof Error) {
+            throw (Error) failed;
+        } else if (failed != null) {
+            throw new RuntimeException(failed);
+        }
+
+        final Map<String, Slot[]> parsed = new LinkedHashMap<String, Slot[]>(masks.length * 2);
+        for (int i = 0; i < masks.length; i++) {
+            parsed.put(masks[i], results[i]);
+        }
+        return parsed;
+    }
+
+    private SlotsParsers() {
+    }
+}
@@ -23,6 +23,9 @@ import ru.tinkoff.decoro.slots.PredefinedSlots;
 import ru.tinkoff.decoro.slots.Slot;
 
 /**
+ * Parses underscores of a raw mask into digit slots and the rest of characters into hardcoded
+ * slots. Parser keeps no state, so a single instance can be used by any number of threads.
+ *
  * @author Mikhail Artemev
  */
 public class UnderscoreDigitSlotsParser implements SlotsParser {
@@ -38,13 +41,23 @@ public class UnderscoreDigitSlotsParser implements SlotsParser {
 
         final Slot[] result = new Slot[rawMask.length()];
         for (int index = 0; index < rawMask.length(); index++) {
-            final char currentChar = rawMask.charAt(index);
-            result[index] = slotFromChar(currentChar);
+            result[index] = slotFromChar(rawMask, index);
         }
 
         return result;
     }
 
+    /**
+     * Creates a slot for a character of the raw mask. Parsers which slots depend on the
+     * neighbouring characters look at them here, so they don't keep a state between calls.
+     *
+     * @param rawMask mask being parsed
+     * @param index   position of the character
+     */
+    protected Slot slotFromChar(@NonNull final CharSequence rawMask, final int index) {
+        return slotFromChar(rawMask.charAt(index));
+    }
+
     protected Slot slotFromChar(final char character) {
         if (character == SLOT_STUB) {
             return slotFromUnderscoreCharacter();
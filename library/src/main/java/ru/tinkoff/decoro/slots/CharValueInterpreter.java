@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro.slots;
+
+/**
+ * {@link ValueInterpreter} working with primitive characters. A slot calls
+ * {@link #interpret(char)} directly, so values are not boxed on their way to the slot.
+ * <p>
+ * Removal of a value is not interpreted: {@code null} is always interpreted as {@code null}.
+ *
+ * @author Mikhail Artemev
+ */
+public abstract class CharValueInterpreter implements ValueInterpreter {
+
+    /**
+     * Result of {@link #interpret(char)} meaning that the value is not accepted. Same as
+     * {@code null} returned by {@link ValueInterpreter#interpret(Character)}.
+     */
+    public static final char NO_VALUE = '\uFFFF';
+
+    /**
+     * @return value to put into a slot instead of {@code value} or {@link #NO_VALUE}
+     */
+    public abstract char interpret(char value);
+
+    @Override
+    public final Character interpret(Character character) {
+        if (character == null) {
+            return null;
+        }
+
+        final char result = interpret(character.charValue());
+        return result == NO_VALUE ? null : result;
+    }
+}
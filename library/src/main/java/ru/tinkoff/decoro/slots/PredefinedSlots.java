@@ -21,6 +21,12 @@ package ru.tinkoff.decoro.slots;
  */
 public final class PredefinedSlots {
 
+    // declared before the slots below which use them
+    private static final SlotValidatorSet NO_VALIDATORS = SlotInterner.validators();
+    private static final SlotValidatorSet DIGIT_VALIDATORS = SlotInterner.validators(new SlotValidators.DigitValidator());
+    private static final SlotValidatorSet ANY_VALIDATORS = SlotInterner.validators(new SlotValidators.GenerousValidator());
+    private static final SlotValidatorSet MASKED_DIGIT_VALIDATORS = SlotInterner.validators(new SlotValidators.MaskedDigitValidator());
+
     public static final Slot[] SINGLE_SLOT = new Slot[]{PredefinedSlots.any()};
 
     public static final Slot[] RUS_PHONE_NUMBER = {
@@ -135,19 +141,19 @@ public final class PredefinedSlots {
     };
 
     public static Slot hardcodedSlot(char value) {
-        return new Slot(Slot.RULES_HARDCODED, value, null);
+        return new Slot(Slot.RULES_HARDCODED, value, NO_VALIDATORS);
     }
 
     public static Slot digit() {
-        return new Slot(null, new SlotValidators.DigitValidator());
+        return new Slot(Slot.RULES_DEFAULT, null, DIGIT_VALIDATORS);
     }
 
     public static Slot any() {
-        return new Slot(null, new SlotValidators.GenerousValidator());
+        return new Slot(Slot.RULES_DEFAULT, null, ANY_VALIDATORS);
     }
 
     public static Slot maskableDigit() {
-        return new Slot(null, new SlotValidators.MaskedDigitValidator());
+        return new Slot(Slot.RULES_DEFAULT, null, MASKED_DIGIT_VALIDATORS);
     }
 
     private PredefinedSlots() {
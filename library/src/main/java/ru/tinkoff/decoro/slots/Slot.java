@@ -22,8 +22,13 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -63,29 +68,51 @@ public final class Slot implements Serializable, Parcelable {
      */
     public static final int TAG_DECORATION = 14779;
 
+    /**
+     * Tag that marks a slot as an "extension" of a non-terminated mask: such slots are appended
+     * to the tail of the mask during input and removed when their values are cleared.
+     */
+    public static final int TAG_EXTENSION = -149635;
+
+    // well-known tags are kept as bits of tagFlags
+    private static final int FLAG_DECORATION = 1;
+    private static final int FLAG_EXTENSION = 1 << 1;
+    private static final int[] NO_TAGS = new int[0];
+
     public static final char PLACEHOLDER_DEFAULT = '_';
 
     private int rulesFlags = RULES_DEFAULT;
 
-    private Character value;
+    // value of a slot that is not attached to a SlotValueStorage
+    char value;
+    boolean valueSet;
 
     private ValueInterpreter valueInterpreter;
 
-    private final Set<Integer> tags = new HashSet<>();
+    private int tagFlags;
+
+    // sorted tags except of well-known ones. Array is never modified, it's replaced instead
+    private int[] customTags = NO_TAGS;
 
     private SlotValidatorSet validators;
 
     transient private Slot nextSlot;
     transient private Slot prevSlot;
 
+    transient SlotValueStorage storage;
+    transient int storageIndex;
+
     public Slot(int rules, @Nullable Character value, @Nullable SlotValidatorSet validators) {
         this.rulesFlags = rules;
-        this.value = value;
         this.validators = validators == null ? new SlotValidatorSet() : validators;
+        if (value != null) {
+            this.value = value;
+            this.valueSet = true;
+        }
     }
 
     public Slot(@Nullable Character value, @Nullable SlotValidator... validators) {
-        this(RULES_DEFAULT, value, SlotValidatorSet.setOf(validators));
+        this(RULES_DEFAULT, value, SlotInterner.validators(SlotValidatorSet.setOf(validators)));
     }
 
     public Slot(char value) {
@@ -99,20 +126,25 @@ public final class Slot implements Serializable, Parcelable {
     public Slot(@NonNull Slot slotToCopy) {
         this(
                 slotToCopy.rulesFlags,
-                slotToCopy.value,
-                slotToCopy.getValidators()
+                null,
+                slotToCopy.validators
         );
+        this.valueSet = slotToCopy.hasValue();
+        this.value = slotToCopy.rawValue();
         this.valueInterpreter = slotToCopy.valueInterpreter;
-        this.tags.addAll(slotToCopy.tags);
+        this.tagFlags = slotToCopy.tagFlags;
+        this.customTags = slotToCopy.customTags;
     }
 
     public boolean anyInputToTheRight() {
-        if (value != null && !hardcoded()) {
-            return true;
+        if (storage != null) {
+            return storage.lastInputIndex() >= storageIndex;
         }
 
-        if (nextSlot != null) {
-            return nextSlot.anyInputToTheRight();
+        for (Slot slot = this; slot != null; slot = slot.nextSlot) {
+            if (slot.hasValue() && !slot.hardcoded()) {
+                return true;
+            }
         }
 
         return false;
@@ -123,45 +155,92 @@ public final class Slot implements Serializable, Parcelable {
     }
 
     public int setValue(@Nullable Character newValue, boolean fromLeft) {
-        return setValueInner(0, newValue, fromLeft);
+        return newValue != null
+                ? shiftValues(0, true, newValue, fromLeft)
+                : shiftValues(0, false, '\0', fromLeft);
+    }
+
+    public int setValue(char newValue) {
+        return setValue(newValue, false);
+    }
+
+    /**
+     * Same as {@link #setValue(Character, boolean)} but doesn't box the value unless slot has
+     * a {@link ValueInterpreter} which is not a {@link CharValueInterpreter}.
+     */
+    public int setValue(char newValue, boolean fromLeft) {
+        return shiftValues(0, true, newValue, fromLeft);
     }
 
     public void setFlags(int rulesFlags) {
         this.rulesFlags = rulesFlags;
+        onRulesChanged();
     }
 
     public int getFlags() {
         return rulesFlags;
     }
 
+    /**
+     * Interpreter is shared with the other slots having an equal one (see
+     * {@link SlotInterner#interpreter(ValueInterpreter)}).
+     */
     public void setValueInterpreter(ValueInterpreter valueInterpreter) {
-        this.valueInterpreter = valueInterpreter;
+        this.valueInterpreter = valueInterpreter != null ? SlotInterner.interpreter(valueInterpreter) : null;
+        onRulesChanged();
+    }
+
+    public ValueInterpreter getValueInterpreter() {
+        return valueInterpreter;
     }
 
     public Slot withValueInterpreter(ValueInterpreter valueInterpreter) {
-        this.valueInterpreter = valueInterpreter;
+        setValueInterpreter(valueInterpreter);
         return this;
     }
 
-    private int setValueInner(int offset, @Nullable Character newValue, boolean fromLeft) {
-        newValue = valueInterpreter == null ? newValue : valueInterpreter.interpret(newValue);
-        if (newValue == null) {
-            removeCurrentValue();
-            return checkRule(RULE_FORBID_CURSOR_MOVE_LEFT) ? 1 : 0;
+    @Nullable
+    public Character getValue() {
+        return hasValue() ? rawValue() : null;
+    }
+
+    private boolean hasValue() {
+        return storage != null ? storage.hasValue(storageIndex) : valueSet;
+    }
+
+    private char rawValue() {
+        return storage != null ? storage.getValue(storageIndex) : value;
+    }
+
+    private void storeValue(char newValue) {
+        if (storage != null) {
+            storage.setValue(storageIndex, newValue);
+        } else {
+            value = newValue;
+            valueSet = true;
         }
-        return setNewValue(offset, newValue, fromLeft);
     }
 
-    @Nullable
-    public Character getValue() {
-        return value;
+    private void removeValue() {
+        if (storage != null) {
+            storage.removeValue(storageIndex);
+        } else {
+            valueSet = false;
+        }
     }
 
     public boolean canInsertHere(char newValue) {
-        newValue = valueInterpreter == null ? newValue : valueInterpreter.interpret(newValue);
+        if (valueInterpreter instanceof CharValueInterpreter) {
+            newValue = ((CharValueInterpreter) valueInterpreter).interpret(newValue);
+            if (newValue == CharValueInterpreter.NO_VALUE) {
+                return false;
+            }
+        } else if (valueInterpreter != null) {
+            newValue = valueInterpreter.interpret(newValue);
+        }
 
         if (hardcoded()) {
-            return value.equals(newValue);
+            return rawValue() == newValue;
         }
 
         return validate(newValue);
@@ -172,7 +251,7 @@ public final class Slot implements Serializable, Parcelable {
     }
 
     public boolean hardcoded() {
-        return value != null && checkRule(RULE_INPUT_MOVES_INPUT);
+        return hasValue() && checkRule(RULE_INPUT_MOVES_INPUT);
     }
 
     public int hardcodedSequenceEndIndex() {
@@ -180,91 +259,207 @@ public final class Slot implements Serializable, Parcelable {
     }
 
     public int hardcodedSequenceEndIndex(int fromIndex) {
+        if (!hardcoded()) {
+            // i'm not even hardcoded
+            return -1;
+        }
 
-        if (hardcoded() && (nextSlot == null || !nextSlot.hardcoded())) {
-            // I'm last hardcoded slot
-            return fromIndex + 1;
+        if (storage != null) {
+            return fromIndex + storage.hardcodedSequenceEnd(storageIndex) - storageIndex;
         }
 
-        if (hardcoded() && nextSlot.hardcoded()) {
-            // me and my next neighbour are hardcoded
-            return nextSlot.hardcodedSequenceEndIndex(++fromIndex);
+        // walk till the last hardcoded slot of the sequence
+        Slot slot = this;
+        while (slot.nextSlot != null && slot.nextSlot.hardcoded()) {
+            slot = slot.nextSlot;
+            fromIndex++;
         }
 
-        // i'm not even hardcoded
-        return -1;
+        return fromIndex + 1;
     }
 
-    private int setNewValue(int offset, @NonNull Character newValue, boolean fromLeft) {
-        boolean changeCurrent = true;
+    /**
+     * Sets new value of this slot and shifts values of the following slots when rules of the
+     * slots require so. Values are shifted in a loop (not recursively) so the stack depth doesn't
+     * depend on a length of the chain.
+     * <p>
+     * Each slot of the chain either keeps its value and passes the incoming one further
+     * ({@link #RULE_INPUT_MOVES_INPUT}), or takes the incoming value and passes its previous value
+     * further ({@link #RULES_DEFAULT}), or just takes the incoming value
+     * ({@link #RULE_INPUT_REPLACE}). If {@link ValueInterpreter} of a slot turns the incoming
+     * value into {@code null}, current value of the slot is removed and the chain stops.
+     *
+     * @param offset    offset of the cursor accumulated so far
+     * @param hasValue  false if new value is {@code null}
+     * @param newValue  new value. Ignored if {@code hasValue} is false
+     * @param fromLeft  whether new value came from the previous slot
+     * @return offset of the cursor after the input, defined by the first slot that accepted the
+     * value
+     */
+    private int shiftValues(int offset, boolean hasValue, char newValue, boolean fromLeft) {
+        Slot slot = this;
+        int result = 0;
+        boolean resultDefined = false;
+
+        // last slot that took the incoming value and passed its previous one further
+        Slot lastReplaced = null;
+        char lastReplacedValue = 0;
+
+        while (true) {
+            if (slot.valueInterpreter instanceof CharValueInterpreter) {
+                // removal of a value is not interpreted
+                if (hasValue) {
+                    newValue = ((CharValueInterpreter) slot.valueInterpreter).interpret(newValue);
+                    hasValue = newValue != CharValueInterpreter.NO_VALUE;
+                }
+            } else if (slot.valueInterpreter != null) {
+                final Character interpreted = slot.valueInterpreter.interpret(hasValue ? newValue : null);
+                hasValue = interpreted != null;
+                newValue = hasValue ? interpreted : 0;
+            }
+
+            if (!hasValue) {
+                slot.removeCurrentValue();
+                if (lastReplaced != null) {
+                    // removal could have pulled a value into the slot which was going to
+                    // be replaced after the chain ends
+                    lastReplaced.storeValue(lastReplacedValue);
+                }
+                return resultDefined ? result : (slot.checkRule(RULE_FORBID_CURSOR_MOVE_LEFT) ? 1 : 0);
+            }
 
-        final boolean forbiddenInputFromLeft = fromLeft
-                && checkRule(RULE_INPUT_MOVES_INPUT)
-                && !checkRule(RULE_INPUT_REPLACE);
+            final boolean forbiddenInputFromLeft = fromLeft
+                    && slot.checkRule(RULE_INPUT_MOVES_INPUT)
+                    && !slot.checkRule(RULE_INPUT_REPLACE);
 
-        if (hardcoded() && !forbiddenInputFromLeft && value.equals(newValue)) {
-            return checkRule(RULE_FORBID_CURSOR_MOVE_RIGHT) ? offset : offset + 1;
-        }
+            if (slot.hardcoded() && !forbiddenInputFromLeft && slot.rawValue() == newValue) {
+                if (resultDefined) {
+                    return result;
+                }
+                return slot.checkRule(RULE_FORBID_CURSOR_MOVE_RIGHT) ? offset : offset + 1;
+            }
 
-        int newOffset = 0;
+            if (slot.checkRule(RULE_INPUT_MOVES_INPUT)) {
+                // we should push new value further without replacing the current one
+                slot = slot.nextSlot;
+                offset++;
+                fromLeft = true;
+                if (slot == null) {
+                    return resultDefined ? result : 0;
+                }
+                continue;
+            }
+
+            final boolean pushCurrent = slot.hasValue()
+                    && ((slot.rulesFlags & MASK_INPUT_RULES) == RULES_DEFAULT);
+            final char currentValue = slot.rawValue();
 
-        if (checkRule(RULE_INPUT_MOVES_INPUT) || forbiddenInputFromLeft) {
-            // we should push new value further without replacing the current one
-            newOffset = pushValueToSlot(offset + 1, newValue, nextSlot);
-            changeCurrent = false;
+            slot.storeValue(newValue);
+            if (!resultDefined) {
+                result = slot.checkRule(RULE_FORBID_CURSOR_MOVE_RIGHT) ? offset : offset + 1;
+                resultDefined = true;
+            }
+
+            if (!pushCurrent || slot.nextSlot == null) {
+                return result;
+            }
+
+            // we should push current value further
+            lastReplaced = slot;
+            lastReplacedValue = newValue;
+
+            slot = slot.nextSlot;
+            newValue = currentValue;
+            offset = 0;
+            fromLeft = true;
         }
+    }
 
-        if (value != null && ((rulesFlags & MASK_INPUT_RULES) == RULES_DEFAULT)) {
-            // we should push current value further without
-            pushValueToSlot(0, value, nextSlot);
+    private void onRulesChanged() {
+        if (storage != null) {
+            storage.setMovesInput(storageIndex, movesInput());
+            storage.setRejectedCharClasses(storageIndex, rejectedCharClasses());
         }
+    }
 
-        if (changeCurrent) {
-            value = newValue;
-            newOffset = checkRule(RULE_FORBID_CURSOR_MOVE_RIGHT) ? offset : offset + 1;
+    /**
+     * @return classes of characters this slot would never accept (see
+     * {@link SlotValidators#rejectedCharClasses(SlotValidator)})
+     */
+    int rejectedCharClasses() {
+        if (valueInterpreter != null || checkRule(RULE_INPUT_MOVES_INPUT)) {
+            // interpreted values and hardcoded slots are checked one by one
+            return 0;
         }
 
-        return newOffset;
+        // only a shared set can't be changed behind the slot's back (e.g. through getValidators()),
+        // any other set is supposed to accept everything
+        return validators != null && validators.isShared() ? SlotValidators.rejectedCharClasses(validators) : 0;
+    }
+
+    private boolean noInputFromHere() {
+        return storage != null && storage.lastInputIndex() < storageIndex;
+    }
+
+    boolean movesInput() {
+        return checkRule(RULE_INPUT_MOVES_INPUT);
     }
 
     private boolean checkRule(final int rule) {
         return (rulesFlags & rule) == rule;
     }
 
+    /**
+     * Removes value of this slot (or of the closest non-hardcoded slot to the left) pulling
+     * values of the following slots.
+     */
     private void removeCurrentValue() {
-        if (!hardcoded()) {
-            value = pullValueFromSlot(nextSlot);
-        } else if (prevSlot != null) {
-            prevSlot.removeCurrentValue();
+        Slot slot = this;
+        while (slot.hardcoded()) {
+            slot = slot.prevSlot;
+            if (slot == null) {
+                return;
+            }
         }
+
+        slot.pullValues();
     }
 
-    private int pushValueToSlot(int offset, Character newValue, Slot slot) {
-        if (slot == null) {
-            return 0;
-        }
+    /**
+     * Replaces current value with the one pulled from the first non-hardcoded slot after it and
+     * so on till the end of the chain. The chain stops on a slot which is left empty because
+     * there's nothing to pull or pulled value is not valid for it.
+     */
+    private void pullValues() {
+        Slot target = this;
 
-        return nextSlot.setValueInner(offset, newValue, true);
-    }
+        while (true) {
+            Slot source = target.nextSlot;
+            while (source != null && source.hardcoded()) {
+                source = source.nextSlot;
+            }
 
-    private Character pullValueFromSlot(Slot slot) {
-        if (slot == null) {
-            return null;
-        }
+            if (source == null || source.noInputFromHere()) {
+                // nothing to pull, all the non-hardcoded slots to the right are empty already
+                target.removeValue();
+                return;
+            }
 
-        Character result = null;
+            final boolean pulled = source.hasValue();
+            final char pulledValue = source.rawValue();
+            if (pulled && !target.validate(pulledValue)) {
+                target.removeValue();
+                return;
+            }
 
-        if (!slot.hardcoded()) {
-            result = slot.getValue();
-            if (result != null && !validate(result)) {
-                return null;
+            if (pulled) {
+                target.storeValue(pulledValue);
+            } else {
+                target.removeValue();
             }
-            slot.removeCurrentValue();
-        } else if (slot.getNextSlot() != null) {
-            result = pullValueFromSlot(slot.getNextSlot());
-        }
 
-        return result;
+            target = source;
+        }
     }
 
     public Slot getNextSlot() {
@@ -283,16 +478,41 @@ public final class Slot implements Serializable, Parcelable {
         this.prevSlot = prevSlot;
     }
 
+    /**
+     * Validators shared with other slots (see {@link SlotInterner}) are copied on the first call,
+     * so the returned set can be changed and the changes affect this slot only.
+     */
     public SlotValidatorSet getValidators() {
+        if (validators != null && validators.isShared()) {
+            validators = SlotValidatorSet.setOf(validators);
+            onRulesChanged();
+        }
+        return validators;
+    }
+
+    /**
+     * @return validators of the slot without copying shared ones as {@link #getValidators()}
+     * does. The set is not supposed to be changed
+     */
+    public SlotValidatorSet peekValidators() {
         return validators;
     }
 
+    /**
+     * A mask skips slots which can't accept a character without asking them (see
+     * {@link SlotValueStorage#nextNotRejecting(int, char)}) only if their validators are shared
+     * (see {@link SlotInterner#validators(SlotValidator...)}), so they can't be changed.
+     */
     public void setValidators(SlotValidatorSet validators) {
         this.validators = validators;
+        onRulesChanged();
     }
 
+    /**
+     * @return live view of the slot's tags. Changes of the returned set are reflected in the slot.
+     */
     public Set<Integer> getTags() {
-        return tags;
+        return new TagsView();
     }
 
     public Slot withTags(Integer... tags) {
@@ -302,7 +522,7 @@ public final class Slot implements Serializable, Parcelable {
 
         for (Integer tag : tags) {
             if (tag != null) {
-                this.tags.add(tag);
+                addTag(tag);
             }
         }
         return this;
@@ -314,13 +534,155 @@ public final class Slot implements Serializable, Parcelable {
             return false;
         }
 
-        return tags.contains(tag);
+        return hasTag((int) tag);
+    }
+
+    public boolean hasTag(int tag) {
+        final int flag = flagOfTag(tag);
+        if (flag != 0) {
+            return (tagFlags & flag) != 0;
+        }
+
+        return Arrays.binarySearch(customTags, tag) >= 0;
+    }
+
+    private boolean addTag(int tag) {
+        final int flag = flagOfTag(tag);
+        if (flag != 0) {
+            final boolean added = (tagFlags & flag) == 0;
+            setTagFlags(tagFlags | flag);
+            return added;
+        }
+
+        final int index = Arrays.binarySearch(customTags, tag);
+        if (index >= 0) {
+            return false;
+        }
+
+        final int insertionPoint = -index - 1;
+        final int[] newTags = new int[customTags.length + 1];
+        System.arraycopy(customTags, 0, newTags, 0, insertionPoint);
+        newTags[insertionPoint] = tag;
+        System.arraycopy(customTags, insertionPoint, newTags, insertionPoint + 1, customTags.length - insertionPoint);
+        customTags = newTags;
+        return true;
+    }
+
+    private boolean removeTag(int tag) {
+        final int flag = flagOfTag(tag);
+        if (flag != 0) {
+            final boolean removed = (tagFlags & flag) != 0;
+            setTagFlags(tagFlags & ~flag);
+            return removed;
+        }
+
+        final int index = Arrays.binarySearch(customTags, tag);
+        if (index < 0) {
+            return false;
+        }
+
+        final int[] newTags = customTags.length == 1 ? NO_TAGS : new int[customTags.length - 1];
+        System.arraycopy(customTags, 0, newTags, 0, index);
+        System.arraycopy(customTags, index + 1, newTags, index, customTags.length - index - 1);
+        customTags = newTags;
+        return true;
+    }
+
+    private void setTagFlags(int flags) {
+        tagFlags = flags;
+        if (storage != null) {
+            storage.setDecoration(storageIndex, (flags & FLAG_DECORATION) != 0);
+            storage.setExtension(storageIndex, (flags & FLAG_EXTENSION) != 0);
+        }
+    }
+
+    private int tagsCount() {
+        return Integer.bitCount(tagFlags) + customTags.length;
+    }
+
+    private int[] tagsArray() {
+        final int[] result = new int[tagsCount()];
+        int index = 0;
+        if ((tagFlags & FLAG_DECORATION) != 0) {
+            result[index++] = TAG_DECORATION;
+        }
+        if ((tagFlags & FLAG_EXTENSION) != 0) {
+            result[index++] = TAG_EXTENSION;
+        }
+        System.arraycopy(customTags, 0, result, index, customTags.length);
+        return result;
+    }
+
+    private static int flagOfTag(int tag) {
+        switch (tag) {
+            case TAG_DECORATION:
+                return FLAG_DECORATION;
+            case TAG_EXTENSION:
+                return FLAG_EXTENSION;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Set of tags backed by the slot. Null tags are ignored just as in {@link #withTags(Integer...)}.
+     */
+    private final class TagsView extends AbstractSet<Integer> {
+
+        @Override
+        public int size() {
+            return tagsCount();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && hasTag((int) (Integer) o);
+        }
+
+        @Override
+        public boolean add(Integer tag) {
+            return tag != null && addTag(tag);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Integer && removeTag((Integer) o);
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            final int[] snapshot = tagsArray();
+            return new Iterator<Integer>() {
+                int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < snapshot.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return snapshot[next++];
+                }
+
+                @Override
+                public void remove() {
+                    if (next == 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeTag(snapshot[next - 1]);
+                }
+            };
+        }
     }
 
     @Override
     public String toString() {
         return "Slot{" +
-                "value=" + value +
+                "value=" + getValue() +
                 '}';
     }
 
@@ -337,26 +699,40 @@ public final class Slot implements Serializable, Parcelable {
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeInt(this.rulesFlags);
-        dest.writeSerializable(this.value);
+        dest.writeSerializable(getValue());
         dest.writeSerializable(this.validators);
         dest.writeSerializable(this.valueInterpreter);
-        dest.writeInt(tags.size());
-        for (Integer theTag : tags) {
+        final int[] tags = tagsArray();
+        dest.writeInt(tags.length);
+        for (int theTag : tags) {
             dest.writeInt(theTag);
         }
     }
 
     protected Slot(Parcel in) {
         this.rulesFlags = in.readInt();
-        this.value = (Character) in.readSerializable();
-        this.validators = (SlotValidatorSet) in.readSerializable();
-        this.valueInterpreter = (ValueInterpreter) in.readSerializable();
+        final Character value = (Character) in.readSerializable();
+        if (value != null) {
+            this.value = value;
+            this.valueSet = true;
+        }
+        final SlotValidatorSet validators = (SlotValidatorSet) in.readSerializable();
+        this.validators = validators != null ? SlotInterner.validators(validators) : null;
+        final ValueInterpreter valueInterpreter = (ValueInterpreter) in.readSerializable();
+        this.valueInterpreter = valueInterpreter != null ? SlotInterner.interpreter(valueInterpreter) : null;
         final int tagsCount = in.readInt();
         for (int i = 0; i < tagsCount; i++) {
-            tags.add(in.readInt());
+            addTag(in.readInt());
         }
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // slot attached to a storage keeps its value there
+        valueSet = hasValue();
+        value = rawValue();
+        out.defaultWriteObject();
+    }
+
     public static final Creator<Slot> CREATOR = new Creator<Slot>() {
         @Override
         public Slot createFromParcel(Parcel source) {
@@ -377,8 +753,10 @@ public final class Slot implements Serializable, Parcelable {
         Slot slot = (Slot) o;
 
         if (rulesFlags != slot.rulesFlags) return false;
-        if (value != null ? !value.equals(slot.value) : slot.value != null) return false;
-        if (tags != null ? !tags.equals(slot.tags) : slot.tags != null) return false;
+        if (hasValue() != slot.hasValue()) return false;
+        if (hasValue() && rawValue() != slot.rawValue()) return false;
+        if (tagFlags != slot.tagFlags) return false;
+        if (!Arrays.equals(customTags, slot.customTags)) return false;
         return validators != null ? validators.equals(slot.validators) : slot.validators == null;
 
     }
@@ -386,12 +764,29 @@ public final class Slot implements Serializable, Parcelable {
     @Override
     public int hashCode() {
         int result = rulesFlags;
-        result = 31 * result + (value != null ? value.hashCode() : 0);
-        result = 31 * result + (tags != null ? tags.hashCode() : 0);
+        result = 31 * result + (hasValue() ? rawValue() : 0);
+        result = 31 * result + tagsHashCode();
         result = 31 * result + (validators != null ? validators.hashCode() : 0);
         return result;
     }
 
+    /**
+     * @return the same hash code as {@link java.util.Set#hashCode()} of the slot's tags
+     */
+    private int tagsHashCode() {
+        int result = 0;
+        if ((tagFlags & FLAG_DECORATION) != 0) {
+            result += TAG_DECORATION;
+        }
+        if ((tagFlags & FLAG_EXTENSION) != 0) {
+            result += TAG_EXTENSION;
+        }
+        for (int tag : customTags) {
+            result += tag;
+        }
+        return result;
+    }
+
     public static Slot[] copySlotArray(Slot[] arr) {
         Slot[] result = new Slot[arr.length];
         for (int i = 0; i < arr.length; i++) {
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro.slots;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Registry of canonical instances of slot parts which are the same for many slots: sets of
+ * validators and value interpreters. Equal parts requested from the registry are the same
+ * object, so slots of all the masks share a handful of them instead of keeping their own
+ * copies. Instances no one refers to anymore are dropped from the registry.
+ * <p>
+ * Parts are compared with {@code equals()}, so parts without it (e.g. anonymous classes) are
+ * only shared with themselves.
+ *
+ * @author Mikhail Artemev
+ */
+public final class SlotInterner {
+
+    private static final Map<SlotValidatorSet, WeakReference<SlotValidatorSet>> VALIDATORS = new WeakHashMap<SlotValidatorSet, WeakReference<SlotValidatorSet>>();
+    private static final Map<ValueInterpreter, WeakReference<ValueInterpreter>> INTERPRETERS = new WeakHashMap<ValueInterpreter, WeakReference<ValueInterpreter>>();
+
+    /**
+     * @return shared set of {@code validators} that can't be changed (see
+     * {@link SlotValidatorSet#isShared()}). A set passed alone is never shared itself, an equal
+     * shared one or a shared copy of it is returned instead. A set of a subclass is returned as it is, since it may
+     * validate differently from an equal plain set
+     */
+    @NonNull
+    public static SlotValidatorSet validators(Slot.SlotValidator... validators) {
+        if (validators != null && validators.length == 1 && validators[0] instanceof SlotValidatorSet) {
+            final SlotValidatorSet set = (SlotValidatorSet) validators[0];
+            if (set.isShared() || set.getClass() != SlotValidatorSet.class) {
+                return set;
+            }
+        }
+
+        return share(SlotValidatorSet.setOf(validators));
+    }
+
+    private static SlotValidatorSet share(SlotValidatorSet set) {
+        synchronized (VALIDATORS) {
+            final SlotValidatorSet existing = get(VALIDATORS, set);
+            if (existing != null) {
+                return existing;
+            }
+
+            set.markShared();
+            VALIDATORS.put(set, new WeakReference<SlotValidatorSet>(set));
+            return set;
+        }
+    }
+
+    /**
+     * @return shared interpreter equal to {@code interpreter}. It is supposed to keep no state
+     */
+    @NonNull
+    public static ValueInterpreter interpreter(@NonNull ValueInterpreter interpreter) {
+        synchronized (INTERPRETERS) {
+            final ValueInterpreter existing = get(INTERPRETERS, interpreter);
+            if (existing != null) {
+                return existing;
+            }
+
+            INTERPRETERS.put(interpreter, new WeakReference<ValueInterpreter>(interpreter));
+            return interpreter;
+        }
+    }
+
+    private static <T> T get(Map<T, WeakReference<T>> map, T key) {
+        final WeakReference<T> reference = map.get(key);
+        return reference != null ? reference.get() : null;
+    }
+
+    private SlotInterner() {
+    }
+}
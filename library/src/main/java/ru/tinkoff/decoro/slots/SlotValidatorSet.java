@@ -18,12 +18,30 @@ package ru.tinkoff.decoro.slots;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 
 /**
+ * Set of validators accepting a character if any of them does.
+ * <p>
+ * To validate a character the set doesn't iterate over itself. On the first validation it is
+ * compiled into a flat array of the validators, and if all of them are the ones known from
+ * {@link SlotValidators} into a table of accepted characters, so validation becomes a single
+ * bit test. Any change of the set drops the compiled form.
+ * <p>
+ * Sets shared by many slots (see {@link SlotInterner#validators(Slot.SlotValidator...)}) can't
+ * be changed, {@link Slot#getValidators()} gives a slot its own copy of such a set instead.
+ *
  * @author Mikhail Artemev
  */
 public class SlotValidatorSet extends HashSet<Slot.SlotValidator> implements Slot.SlotValidator {
 
+    // the only non-ASCII letters accepted by SlotValidators.LetterValidator
+    private static final char CYRILLIC_FIRST = '\u0410';
+    private static final char CYRILLIC_LAST = '\u044F';
+
+    private transient Compiled compiled;
+    private transient boolean shared;
+
     public static SlotValidatorSet setOf(Slot.SlotValidator... validators) {
         if (validators == null) {
             return new SlotValidatorSet();
@@ -70,12 +88,161 @@ public class SlotValidatorSet extends HashSet<Slot.SlotValidator> implements Slo
 
     @Override
     public boolean validate(char value) {
-        for (Slot.SlotValidator validator : this) {
-            if (validator.validate(value)) {
-                return true;
+        Compiled compiled = this.compiled;
+        if (compiled == null) {
+            compiled = new Compiled(this);
+            this.compiled = compiled;
+        }
+
+        return compiled.validate(value);
+    }
+
+    @Override
+    public boolean add(Slot.SlotValidator validator) {
+        onChange();
+        return super.add(validator);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        onChange();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        onChange();
+        super.clear();
+    }
+
+    @Override
+    public Iterator<Slot.SlotValidator> iterator() {
+        final Iterator<Slot.SlotValidator> iterator = super.iterator();
+        return new Iterator<Slot.SlotValidator>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
             }
+
+            @Override
+            public Slot.SlotValidator next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                onChange();
+                iterator.remove();
+            }
+        };
+    }
+
+    /**
+     * @return true if the set is shared by many slots and can't be changed
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        shared = true;
+    }
+
+    private void onChange() {
+        if (shared) {
+            throw new UnsupportedOperationException("Shared set of validators can't be changed");
         }
+        compiled = null;
+    }
+
+    /**
+     * Immutable snapshot of the set. If all the validators are known then accepted characters are
+     * kept in bits: ASCII ones and cyrillic letters in a table and for the rest of characters
+     * the set accepts either all of them, or digits only, or nothing.
+     */
+    private static final class Compiled {
+
+        private final Slot.SlotValidator[] validators;
+        private final boolean known;
+        private final long[] accepted;
+        private final long acceptedCyrillic;
+        private final boolean acceptsAll;
+        private final boolean acceptsDigits;
 
-        return false;
+        Compiled(SlotValidatorSet set) {
+            validators = new Slot.SlotValidator[set.size()];
+            boolean known = true;
+            boolean acceptsAll = false;
+            boolean acceptsDigits = false;
+
+            int i = 0;
+            for (Slot.SlotValidator validator : set) {
+                validators[i++] = validator;
+
+                final Class<?> validatorClass = validator.getClass();
+                if (validatorClass == SlotValidators.GenerousValidator.class) {
+                    acceptsAll = true;
+                } else if (validatorClass == SlotValidators.DigitValidator.class) {
+                    acceptsDigits = true;
+                } else if (validatorClass == SlotValidators.MaskedDigitValidator.class) {
+                    acceptsDigits = true;
+                    for (char maskChar : ((SlotValidators.MaskedDigitValidator) validator).maskChars) {
+                        known &= maskChar < 128 || (CYRILLIC_FIRST <= maskChar && maskChar <= CYRILLIC_LAST);
+                    }
+                } else if (validatorClass != SlotValidators.LetterValidator.class) {
+                    known = false;
+                }
+            }
+
+            this.known = known;
+            this.acceptsAll = acceptsAll;
+            this.acceptsDigits = acceptsDigits;
+
+            if (known) {
+                accepted = new long[2];
+                for (char c = 0; c < 128; c++) {
+                    if (validateEach(c)) {
+                        accepted[c >> 6] |= 1L << c;
+                    }
+                }
+
+                long cyrillic = 0;
+                for (char c = CYRILLIC_FIRST; c <= CYRILLIC_LAST; c++) {
+                    if (validateEach(c)) {
+                        cyrillic |= 1L << (c - CYRILLIC_FIRST);
+                    }
+                }
+                acceptedCyrillic = cyrillic;
+            } else {
+                accepted = null;
+                acceptedCyrillic = 0;
+            }
+        }
+
+        boolean validate(char value) {
+            if (!known) {
+                return validateEach(value);
+            }
+
+            if (value < 128) {
+                return (accepted[value >> 6] & (1L << value)) != 0;
+            }
+
+            if (CYRILLIC_FIRST <= value && value <= CYRILLIC_LAST) {
+                return (acceptedCyrillic & (1L << (value - CYRILLIC_FIRST))) != 0;
+            }
+
+            return acceptsAll || (acceptsDigits && Character.isDigit(value));
+        }
+
+        private boolean validateEach(char value) {
+            for (Slot.SlotValidator validator : validators) {
+                if (validator.validate(value)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
     }
 }
@@ -75,7 +75,7 @@ public final class SlotValidators {
     public static class MaskedDigitValidator extends DigitValidator {
 
         private static final char[] DEFAULT_DIGIT_MASK_CHARS = {'X', 'x', '*'};
-        private char[] maskChars = DEFAULT_DIGIT_MASK_CHARS;
+        char[] maskChars = DEFAULT_DIGIT_MASK_CHARS;
 
         public MaskedDigitValidator() {
         }
@@ -180,5 +180,66 @@ public final class SlotValidators {
         }
     }
 
+    static final int CHAR_CLASS_DIGIT = 1;
+    static final int CHAR_CLASS_LETTER = 1 << 1;
+    static final int CHAR_CLASS_OTHER = 1 << 2;
+    static final int CHAR_CLASSES_ALL = CHAR_CLASS_DIGIT | CHAR_CLASS_LETTER | CHAR_CLASS_OTHER;
 
+    /**
+     * Splits characters into coarse classes which allow to tell quickly that a slot with one of
+     * the validators below can't accept a character: digits, letters (in a sense of
+     * {@link LetterValidator}) and the others.
+     */
+    static int charClassOf(char value) {
+        if (Character.isDigit(value)) {
+            return CHAR_CLASS_DIGIT;
+        }
+
+        if (('A' <= value && value <= 'Z') || ('a' <= value && value <= 'z') || ('А' <= value && value <= 'я')) {
+            return CHAR_CLASS_LETTER;
+        }
+
+        return CHAR_CLASS_OTHER;
+    }
+
+    /**
+     * @return classes of characters (see {@link #charClassOf(char)}) none of which is valid for
+     * {@code validator}. Only validators declared here and plain sets of them are known, any
+     * other validator (including subclasses of those) is supposed to accept some characters of
+     * every class.
+     */
+    static int rejectedCharClasses(Slot.SlotValidator validator) {
+        final Class<?> validatorClass = validator.getClass();
+
+        if (validatorClass == SlotValidatorSet.class) {
+            // set rejects a character if all of its validators do
+            int result = CHAR_CLASSES_ALL;
+            for (Slot.SlotValidator one : (SlotValidatorSet) validator) {
+                result &= rejectedCharClasses(one);
+            }
+            return result;
+        }
+
+        if (validatorClass == DigitValidator.class) {
+            return CHAR_CLASS_LETTER | CHAR_CLASS_OTHER;
+        }
+
+        if (validatorClass == MaskedDigitValidator.class) {
+            int result = CHAR_CLASS_LETTER | CHAR_CLASS_OTHER;
+            for (char maskChar : ((MaskedDigitValidator) validator).maskChars) {
+                result &= ~charClassOf(maskChar);
+            }
+            return result;
+        }
+
+        if (validatorClass == LetterValidator.class) {
+            final LetterValidator letterValidator = (LetterValidator) validator;
+            if (!letterValidator.supportsEnglish && !letterValidator.supportsRussian) {
+                return CHAR_CLASSES_ALL;
+            }
+            return CHAR_CLASS_DIGIT | CHAR_CLASS_OTHER;
+        }
+
+        return 0;
+    }
 }
@@ -0,0 +1,734 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro.slots;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Storage of values of all the slots of a mask. Values are kept in a primitive {@code char}
+ * array and presence of a value on each position is tracked in a bit set. A {@link Slot}
+ * attached to the storage reads and writes its value here, so changing values of a mask's
+ * slots doesn't box characters and doesn't allocate.
+ * <p>
+ * Storage also keeps track of the last position holding user input, i.e. a value of a slot
+ * without {@link Slot#RULE_INPUT_MOVES_INPUT} rule. So the question "is there any input to the
+ * right" is answered without walking the slots.
+ * <p>
+ * The same way storage keeps track of the last <em>hole</em>, i.e. an empty position of a slot
+ * without {@link Slot#TAG_EXTENSION} tag. A mask is filled out from some position if there're
+ * no holes after it.
+ * <p>
+ * For every class of characters (see {@link SlotValidators#charClassOf(char)}) storage keeps
+ * positions of slots that are known to reject all the characters of the class. So looking for
+ * a slot to input a character skips such slots a word of bits at a time.
+ * <p>
+ * Positions of {@link Slot#TAG_DECORATION decoration} slots are tracked as well along with a
+ * lazily built table of decoration counts before each word of bits. It maps positions of a
+ * formatted text to positions of unformatted one and back.
+ * <p>
+ * Every change of the storage bumps its {@link #version()}, so whoever renders the values can
+ * cache the result until the next change.
+ * <p>
+ * Positions of the storage match the positions of slots in a mask. Whoever keeps the slots
+ * (see {@code SlotsList}) is responsible for opening and closing positions along with inserting
+ * and removing slots and for re-attaching slots which positions have changed.
+ *
+ * @author Mikhail Artemev
+ */
+public final class SlotValueStorage {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int CHAR_CLASSES_COUNT = 3;
+
+    private char[] values;
+    private long[] presence;
+    private long[] movesInput;
+    private long[] decorations;
+    private long[] extensions;
+    // rejections[i] keeps positions rejecting characters of class 1 << i
+    private final long[][] rejections = new long[CHAR_CLASSES_COUNT][];
+    private int size;
+
+    // the last position not rejecting characters of each class, valid only if not dirty
+    private final int[] lastNotRejecting = new int[CHAR_CLASSES_COUNT];
+    private boolean rejectionsIndexDirty;
+
+    // number of decoration positions before each word of bits, valid only if not dirty
+    private int[] decorationsBeforeWord = new int[1];
+    private boolean decorationsIndexDirty;
+
+    // there's no input (hole) after these positions, the position itself holds input (is a hole)
+    // only if the corresponding flag is set. Otherwise it is looked for on demand
+    private int lastInputIndex = -1;
+    private boolean lastInputExact = true;
+    private int lastHoleIndex = -1;
+    private boolean lastHoleExact = true;
+
+    private int version;
+
+    public SlotValueStorage() {
+        this(0);
+    }
+
+    public SlotValueStorage(int capacity) {
+        values = new char[capacity];
+        presence = new long[wordsFor(capacity)];
+        movesInput = new long[wordsFor(capacity)];
+        decorations = new long[wordsFor(capacity)];
+        extensions = new long[wordsFor(capacity)];
+        for (int i = 0; i < CHAR_CLASSES_COUNT; i++) {
+            rejections[i] = new long[wordsFor(capacity)];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of positions the storage can keep without growing
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * @return number of changes of the storage (values, positions or rules affecting rendering
+     * of the values) made so far. It may overflow, so only compare it for equality.
+     */
+    public int version() {
+        return version;
+    }
+
+    public boolean hasValue(int index) {
+        return isSet(presence, index);
+    }
+
+    /**
+     * @return true if the specified position holds user input, i.e. it has a value and slot on
+     * this position doesn't have {@link Slot#RULE_INPUT_MOVES_INPUT} rule.
+     */
+    public boolean hasInput(int index) {
+        return hasValue(index) && !isSet(movesInput, index);
+    }
+
+    /**
+     * @return true if the specified position holds a value of a slot with
+     * {@link Slot#RULE_INPUT_MOVES_INPUT} rule, i.e. the slot is {@link Slot#hardcoded()}.
+     */
+    public boolean isHardcoded(int index) {
+        return hasValue(index) && isSet(movesInput, index);
+    }
+
+    /**
+     * Looks for the end of a sequence of hardcoded positions starting at {@code index}. Walks a
+     * word of bits at a time.
+     *
+     * @return the first position at or after {@code index} which is not hardcoded (see
+     * {@link #isHardcoded(int)}) or {@link #size()} if all the positions till the end are
+     */
+    public int hardcodedSequenceEnd(int index) {
+        final int words = wordsFor(size);
+        int wordIndex = index >> ADDRESS_BITS_PER_WORD;
+        long word = ~hardcodedWord(wordIndex) & (-1L << index);
+        while (word == 0) {
+            if (++wordIndex >= words) {
+                return size;
+            }
+            word = ~hardcodedWord(wordIndex);
+        }
+
+        return Math.min(size, (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * @return number of positions of {@link Slot#TAG_DECORATION decoration} slots before
+     * {@code index} (exclusive)
+     */
+    public int decorationsBefore(int index) {
+        if (index < 0 || size < index) {
+            throw new IndexOutOfBoundsException("Position should be inside the storage. Or on the tail (position = size)");
+        }
+
+        ensureDecorationsIndex();
+        final int wordIndex = index >> ADDRESS_BITS_PER_WORD;
+        final int inWordIndex = index & 63;
+        if (inWordIndex == 0) {
+            return decorationsBeforeWord[wordIndex];
+        }
+
+        return decorationsBeforeWord[wordIndex]
+                + Long.bitCount(decorations[wordIndex] & ((1L << inWordIndex) - 1));
+    }
+
+    /**
+     * Looks for the first position that has exactly {@code count} non-decoration positions
+     * before it. Binary search over words of bits is used.
+     *
+     * @param count number of non-decoration positions, should be >= 0 and <= number of such
+     *              positions in the storage
+     * @return the smallest position having {@code count} non-decoration positions before it
+     */
+    public int nonDecorationsEnd(int count) {
+        if (count < 0 || size - decorationsBefore(size) < count) {
+            throw new IndexOutOfBoundsException("Storage doesn't have " + count + " non-decoration positions");
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        // find the last word having less than count non-decoration positions before it
+        int low = 0;
+        int high = wordsFor(size) - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if ((middle << ADDRESS_BITS_PER_WORD) - decorationsBeforeWord[middle] < count) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // and select the remaining non-decoration position inside it
+        int remaining = count - ((low << ADDRESS_BITS_PER_WORD) - decorationsBeforeWord[low]);
+        long nonDecorations = ~decorations[low];
+        while (--remaining > 0) {
+            nonDecorations &= nonDecorations - 1;
+        }
+
+        return (low << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(nonDecorations) + 1;
+    }
+
+    /**
+     * Looks for the first position at or after {@code index} which slot may accept
+     * {@code value}, i.e. skips slots known to reject the whole class of the value (see
+     * {@link SlotValidators#rejectedCharClasses(Slot.SlotValidator)}). Slot on the resulting
+     * position should still be asked whether it accepts the value.
+     *
+     * @return found position or {@link #size()} if there's no such position
+     */
+    public int nextNotRejecting(int index, char value) {
+        final int charClass = Integer.numberOfTrailingZeros(SlotValidators.charClassOf(value));
+
+        ensureRejectionsIndex();
+        if (index > lastNotRejecting[charClass]) {
+            // nothing to the right accepts this class
+            return size;
+        }
+
+        final long[] rejected = rejections[charClass];
+        int wordIndex = index >> ADDRESS_BITS_PER_WORD;
+        long word = ~rejected[wordIndex] & (-1L << index);
+        while (word == 0) {
+            word = ~rejected[++wordIndex];
+        }
+
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return the last position holding user input (see {@link #hasInput(int)}) or -1 if there's
+     * no input at all.
+     */
+    public int lastInputIndex() {
+        if (!lastInputExact) {
+            lastInputIndex = findLast(lastInputIndex, false);
+            lastInputExact = true;
+        }
+        return lastInputIndex;
+    }
+
+    /**
+     * @return true if the specified position is a hole, i.e. it has no value and slot on this
+     * position doesn't have {@link Slot#TAG_EXTENSION} tag.
+     */
+    public boolean isHole(int index) {
+        return !hasValue(index) && !isSet(extensions, index);
+    }
+
+    /**
+     * @return the last hole (see {@link #isHole(int)}) or -1 if there're no holes at all.
+     */
+    public int lastHoleIndex() {
+        if (!lastHoleExact) {
+            lastHoleIndex = findLast(lastHoleIndex, true);
+            lastHoleExact = true;
+        }
+        return lastHoleIndex;
+    }
+
+    /**
+     * @return value on the specified position. Result makes sense only if
+     * {@link #hasValue(int)} returns true for the position.
+     */
+    public char getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Replaces value on a position that already holds one. Neither other values nor slots are
+     * affected, so it's up to the caller to make sure the new value is valid for the slot.
+     */
+    public void replaceValue(int index, char value) {
+        if (!hasValue(index)) {
+            throw new IllegalStateException("Position " + index + " has no value to replace");
+        }
+        setValue(index, value);
+    }
+
+    /**
+     * Removes values on positions from {@code start} to {@code end} (exclusive) and moves values
+     * of the following positions to the left in a single pass, the same way the values are pulled
+     * by the slots one position at a time. Positions holding hardcoded values neither lose nor take
+     * values. It's up to the caller to make sure the moved values are valid for the slots on
+     * their new positions.
+     */
+    public void removeRange(int start, int end) {
+        final int last = lastInputIndex();
+        int read = end;
+
+        for (int write = start; write <= last; write++) {
+            if (isHardcoded(write)) {
+                continue;
+            }
+
+            while (read <= last && isHardcoded(read)) {
+                read++;
+            }
+
+            if (read <= last && hasValue(read)) {
+                setValue(write, values[read]);
+            } else {
+                removeValue(write);
+            }
+            read++;
+        }
+    }
+
+    void setValue(int index, char value) {
+        values[index] = value;
+        set(presence, index);
+        onPositionChanged(index);
+    }
+
+    void removeValue(int index) {
+        clear(presence, index);
+        onPositionChanged(index);
+    }
+
+    void setDecoration(int index, boolean decoration) {
+        if (isSet(decorations, index) == decoration) {
+            return;
+        }
+
+        if (decoration) {
+            set(decorations, index);
+        } else {
+            clear(decorations, index);
+        }
+        decorationsIndexDirty = true;
+        version++;
+    }
+
+    void setMovesInput(int index, boolean moves) {
+        if (moves) {
+            set(movesInput, index);
+        } else {
+            clear(movesInput, index);
+        }
+        onPositionChanged(index);
+    }
+
+    void setRejectedCharClasses(int index, int charClasses) {
+        for (int i = 0; i < CHAR_CLASSES_COUNT; i++) {
+            if ((charClasses & (1 << i)) != 0) {
+                set(rejections[i], index);
+            } else {
+                clear(rejections[i], index);
+            }
+        }
+        rejectionsIndexDirty = true;
+    }
+
+    void setExtension(int index, boolean extension) {
+        if (extension) {
+            set(extensions, index);
+        } else {
+            clear(extensions, index);
+        }
+        onPositionChanged(index);
+    }
+
+    /**
+     * Opens an empty position at {@code index} shifting all the following values to the right.
+     *
+     * @param index position to open, should be >= 0 and <= size
+     */
+    public void insertEmpty(int index) {
+        if (index < 0 || size < index) {
+            throw new IndexOutOfBoundsException("New position should be inside the storage. Or on the tail (position = size)");
+        }
+
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        size++;
+        shiftUp(presence, index, wordsFor(size));
+        shiftUp(movesInput, index, wordsFor(size));
+        shiftUp(decorations, index, wordsFor(size));
+        shiftUp(extensions, index, wordsFor(size));
+        for (long[] rejected : rejections) {
+            shiftUp(rejected, index, wordsFor(size));
+        }
+        decorationsIndexDirty = true;
+        rejectionsIndexDirty = true;
+
+        if (lastInputIndex >= index) {
+            lastInputIndex++;
+        }
+        if (lastHoleIndex >= index) {
+            lastHoleIndex++;
+        }
+        // new position is empty
+        onPositionChanged(index);
+    }
+
+    /**
+     * Closes position {@code index} shifting all the following values to the left. Slot attached
+     * to this position should be {@link #detach(Slot) detached} beforehand.
+     *
+     * @param index position to close
+     */
+    public void delete(int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Position should be inside the storage");
+        }
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        shiftDown(presence, index, wordsFor(size));
+        shiftDown(movesInput, index, wordsFor(size));
+        shiftDown(decorations, index, wordsFor(size));
+        shiftDown(extensions, index, wordsFor(size));
+        for (long[] rejected : rejections) {
+            shiftDown(rejected, index, wordsFor(size));
+        }
+        decorationsIndexDirty = true;
+        rejectionsIndexDirty = true;
+        size--;
+        version++;
+
+        if (lastInputIndex > index) {
+            lastInputIndex--;
+        } else if (lastInputIndex == index) {
+            lastInputIndex--;
+            lastInputExact = false;
+        }
+
+        if (lastHoleIndex > index) {
+            lastHoleIndex--;
+        } else if (lastHoleIndex == index) {
+            lastHoleIndex--;
+            lastHoleExact = false;
+        }
+    }
+
+    /**
+     * Closes all the positions starting from {@code newSize}. Slots attached to these positions
+     * should be {@link #detach(Slot) detached} beforehand.
+     *
+     * @param newSize number of positions to keep
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || size < newSize) {
+            throw new IndexOutOfBoundsException("New size should be inside the storage");
+        }
+
+        if (newSize == size) {
+            return;
+        }
+
+        // positions after the size are always cleared
+        clearFrom(presence, newSize, size);
+        clearFrom(movesInput, newSize, size);
+        clearFrom(decorations, newSize, size);
+        clearFrom(extensions, newSize, size);
+        for (long[] rejected : rejections) {
+            clearFrom(rejected, newSize, size);
+        }
+        decorationsIndexDirty = true;
+        rejectionsIndexDirty = true;
+        size = newSize;
+        version++;
+
+        if (lastInputIndex >= newSize) {
+            lastInputIndex = newSize - 1;
+            lastInputExact = false;
+        }
+
+        if (lastHoleIndex >= newSize) {
+            lastHoleIndex = newSize - 1;
+            lastHoleExact = false;
+        }
+    }
+
+    /**
+     * Makes {@code slot} keep its value on the specified position of this storage. If the slot
+     * is not attached to this storage yet its current value is moved to the position. Otherwise
+     * slot is just bound to the new position (which already holds its value after
+     * {@link #insertEmpty(int)} or {@link #delete(int)}).
+     */
+    public void attach(@NonNull Slot slot, int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Position should be inside the storage");
+        }
+
+        if (slot.storage != this) {
+            if (slot.storage != null) {
+                slot.storage.detach(slot);
+            }
+
+            setMovesInput(index, slot.movesInput());
+            setDecoration(index, slot.hasTag(Slot.TAG_DECORATION));
+            setExtension(index, slot.hasTag(Slot.TAG_EXTENSION));
+            setRejectedCharClasses(index, slot.rejectedCharClasses());
+            if (slot.valueSet) {
+                setValue(index, slot.value);
+            } else {
+                removeValue(index);
+            }
+        }
+
+        slot.storage = this;
+        slot.storageIndex = index;
+    }
+
+    /**
+     * Makes {@code slot} keep its value by itself again. Position of the slot stays in the
+     * storage until it is {@link #delete(int) deleted}.
+     */
+    public void detach(@NonNull Slot slot) {
+        if (slot.storage != this) {
+            return;
+        }
+
+        slot.valueSet = hasValue(slot.storageIndex);
+        slot.value = values[slot.storageIndex];
+        slot.storage = null;
+        slot.storageIndex = 0;
+    }
+
+    /**
+     * @return position of {@code slot} if it is attached to this storage or -1 otherwise
+     */
+    public int indexOf(@NonNull Slot slot) {
+        return slot.storage == this ? slot.storageIndex : -1;
+    }
+
+    private void onPositionChanged(int index) {
+        version++;
+        if (hasInput(index)) {
+            if (index >= lastInputIndex) {
+                lastInputIndex = index;
+                lastInputExact = true;
+            }
+        } else if (index == lastInputIndex) {
+            // the last input is somewhere before, it will be looked for when asked
+            lastInputIndex--;
+            lastInputExact = false;
+        }
+
+        if (isHole(index)) {
+            if (index >= lastHoleIndex) {
+                lastHoleIndex = index;
+                lastHoleExact = true;
+            }
+        } else if (index == lastHoleIndex) {
+            lastHoleIndex--;
+            lastHoleExact = false;
+        }
+    }
+
+    /**
+     * Looks for the last position holding user input (or the last hole) walking backwards from
+     * {@code fromIndex} (inclusive) a word of bits at a time.
+     */
+    private int findLast(int fromIndex, boolean hole) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex >> ADDRESS_BITS_PER_WORD;
+        long word = (hole ? holeWord(wordIndex) : inputWord(wordIndex)) & (-1L >>> (63 - (fromIndex & 63)));
+        while (word == 0) {
+            if (--wordIndex < 0) {
+                return -1;
+            }
+            word = hole ? holeWord(wordIndex) : inputWord(wordIndex);
+        }
+
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    private void ensureDecorationsIndex() {
+        if (!decorationsIndexDirty) {
+            return;
+        }
+
+        final int words = wordsFor(size);
+        if (decorationsBeforeWord.length < words + 1) {
+            decorationsBeforeWord = new int[presence.length + 1];
+        }
+
+        for (int i = 0; i < words; i++) {
+            decorationsBeforeWord[i + 1] = decorationsBeforeWord[i] + Long.bitCount(decorations[i]);
+        }
+        decorationsIndexDirty = false;
+    }
+
+    private void ensureRejectionsIndex() {
+        if (!rejectionsIndexDirty) {
+            return;
+        }
+
+        for (int i = 0; i < CHAR_CLASSES_COUNT; i++) {
+            lastNotRejecting[i] = lastClear(rejections[i], size - 1);
+        }
+        rejectionsIndexDirty = false;
+    }
+
+    private long inputWord(int wordIndex) {
+        return presence[wordIndex] & ~movesInput[wordIndex];
+    }
+
+    private long holeWord(int wordIndex) {
+        return ~presence[wordIndex] & ~extensions[wordIndex];
+    }
+
+    private long hardcodedWord(int wordIndex) {
+        return presence[wordIndex] & movesInput[wordIndex];
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (values.length >= minCapacity) {
+            return;
+        }
+
+        int newCapacity = values.length + (values.length >> 1);
+        if (newCapacity < minCapacity) {
+            newCapacity = Math.max(minCapacity, 4);
+        }
+
+        final char[] grownValues = new char[newCapacity];
+        System.arraycopy(values, 0, grownValues, 0, size);
+        values = grownValues;
+
+        presence = grow(presence, wordsFor(newCapacity));
+        movesInput = grow(movesInput, wordsFor(newCapacity));
+        decorations = grow(decorations, wordsFor(newCapacity));
+        extensions = grow(extensions, wordsFor(newCapacity));
+        for (int i = 0; i < CHAR_CLASSES_COUNT; i++) {
+            rejections[i] = grow(rejections[i], wordsFor(newCapacity));
+        }
+    }
+
+    private static long[] grow(long[] bits, int words) {
+        final long[] grown = new long[words];
+        System.arraycopy(bits, 0, grown, 0, bits.length);
+        return grown;
+    }
+
+    /**
+     * @return the last position at or before {@code fromIndex} with a cleared bit or -1
+     */
+    private static int lastClear(long[] bits, int fromIndex) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex >> ADDRESS_BITS_PER_WORD;
+        long word = ~bits[wordIndex] & (-1L >>> (63 - (fromIndex & 63)));
+        while (word == 0) {
+            if (--wordIndex < 0) {
+                return -1;
+            }
+            word = ~bits[wordIndex];
+        }
+
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >> ADDRESS_BITS_PER_WORD] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >> ADDRESS_BITS_PER_WORD] &= ~(1L << index);
+    }
+
+    /**
+     * Clears bits from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive).
+     */
+    private static void clearFrom(long[] bits, int fromIndex, int toIndex) {
+        final int fromWord = fromIndex >> ADDRESS_BITS_PER_WORD;
+        bits[fromWord] &= (1L << fromIndex) - 1;
+        for (int i = fromWord + 1, words = wordsFor(toIndex); i < words; i++) {
+            bits[i] = 0;
+        }
+    }
+
+    /**
+     * Moves bits starting from {@code index} one position up leaving {@code index} cleared.
+     */
+    private static void shiftUp(long[] bits, int index, int words) {
+        final int wordIndex = index >> ADDRESS_BITS_PER_WORD;
+        for (int i = words - 1; i > wordIndex; i--) {
+            bits[i] = (bits[i] << 1) | (bits[i - 1] >>> 63);
+        }
+
+        final long lowBits = (1L << index) - 1;
+        final long word = bits[wordIndex];
+        bits[wordIndex] = (word & lowBits) | ((word & ~lowBits) << 1);
+        clear(bits, index);
+    }
+
+    /**
+     * Moves bits after {@code index} one position down dropping the bit on {@code index}.
+     */
+    private static void shiftDown(long[] bits, int index, int words) {
+        final int wordIndex = index >> ADDRESS_BITS_PER_WORD;
+        final long lowBits = (1L << index) - 1;
+        final long word = bits[wordIndex];
+        bits[wordIndex] = (word & lowBits) | ((word >>> 1) & ~lowBits);
+
+        for (int i = wordIndex; i < words; i++) {
+            if (i > wordIndex) {
+                bits[i] >>>= 1;
+            }
+            if (i + 1 < words) {
+                bits[i] |= bits[i + 1] << 63;
+            }
+        }
+    }
+
+    private static int wordsFor(int bits) {
+        return ((bits - 1) >> ADDRESS_BITS_PER_WORD) + 1;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro.slots;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Interpreter replacing some characters with others (e.g. '8' with '7' in the first digit of a
+ * phone number) and keeping the rest of characters as is. Replacements are looked up in a table
+ * indexed by a character when replaced characters are close to each other and by a binary
+ * search otherwise.
+ *
+ * @author Mikhail Artemev
+ */
+public class TableValueInterpreter extends CharValueInterpreter {
+
+    /**
+     * Replaces full-width digits (U+FF10 - U+FF19) with ASCII ones.
+     */
+    public static final TableValueInterpreter FULL_WIDTH_DIGITS = replacing(
+            "\uFF10\uFF11\uFF12\uFF13\uFF14\uFF15\uFF16\uFF17\uFF18\uFF19", "0123456789");
+
+    /**
+     * Replaces cyrillic letters with latin ones looking the same.
+     */
+    public static final TableValueInterpreter CYRILLIC_TO_LATIN = replacing(
+            "АВЕКМНОРСТХаеорсух", "ABEKMHOPCTXaeopcyx");
+
+    /**
+     * Replaces latin letters with cyrillic ones looking the same.
+     */
+    public static final TableValueInterpreter LATIN_TO_CYRILLIC = replacing(
+            "ABEKMHOPCTXaeopcyx", "АВЕКМНОРСТХаеорсух");
+
+    // table is used when replaced characters fit into this many positions
+    private static final int MAX_TABLE_LENGTH = 256;
+
+    // replaced characters in ascending order and their replacements
+    private final char[] from;
+    private final char[] to;
+
+    private final char tableStart;
+    private final char[] table;
+
+    /**
+     * @param from characters to replace
+     * @param to   replacements of the characters on the same positions, may include
+     *             {@link #NO_VALUE} to reject a character
+     */
+    @NonNull
+    public static TableValueInterpreter replacing(@NonNull CharSequence from, @NonNull CharSequence to) {
+        return new TableValueInterpreter(from, to);
+    }
+
+    protected TableValueInterpreter(@NonNull CharSequence from, @NonNull CharSequence to) {
+        if (from.length() != to.length()) {
+            throw new IllegalArgumentException("Each character should have a replacement");
+        }
+
+        final int length = from.length();
+        this.from = new char[length];
+        this.to = new char[length];
+
+        // sort pairs by replaced characters, there're just a few of them
+        for (int i = 0; i < length; i++) {
+            final char c = from.charAt(i);
+            int position = i;
+            while (position > 0 && this.from[position - 1] > c) {
+                this.from[position] = this.from[position - 1];
+                this.to[position] = this.to[position - 1];
+                position--;
+            }
+
+            if (position > 0 && this.from[position - 1] == c) {
+                throw new IllegalArgumentException("Character '" + c + "' has more than one replacement");
+            }
+
+            this.from[position] = c;
+            this.to[position] = to.charAt(i);
+        }
+
+        if (length > 0 && this.from[length - 1] - this.from[0] < MAX_TABLE_LENGTH) {
+            tableStart = this.from[0];
+            table = new char[this.from[length - 1] - tableStart + 1];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (char) (tableStart + i);
+            }
+            for (int i = 0; i < length; i++) {
+                table[this.from[i] - tableStart] = this.to[i];
+            }
+        } else {
+            tableStart = 0;
+            table = null;
+        }
+    }
+
+    @Override
+    public char interpret(char value) {
+        if (table != null) {
+            final int index = value - tableStart;
+            return index >= 0 && index < table.length ? table[index] : value;
+        }
+
+        final int index = Arrays.binarySearch(from, value);
+        return index >= 0 ? to[index] : value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TableValueInterpreter that = (TableValueInterpreter) o;
+
+        return Arrays.equals(from, that.from) && Arrays.equals(to, that.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(from) + Arrays.hashCode(to);
+    }
+}
@@ -19,6 +19,10 @@ package ru.tinkoff.decoro.watchers;
 import java.util.Locale;
 
 /**
+ * Measures of a single text change. Along with the measures it keeps a copy of the replaced
+ * region of the text (not the whole text), so the text before the change can be restored if
+ * needed.
+ *
  * @author Mikhail Artemev
  */
 class DiffMeasures {
@@ -36,10 +40,20 @@ class DiffMeasures {
 
     private boolean trimmingSequence;
 
+    // the change as reported by the text, not affected by recalculateOnModifyingWord
+    private int changeStart;
+    private int changeInsertLength;
+    private final StringBuilder replacedText = new StringBuilder();
+
     public DiffMeasures() {
     }
 
-    public void calculateBeforeTextChanged(int start, int count, int after) {
+    public void calculateBeforeTextChanged(CharSequence text, int start, int count, int after) {
+        changeStart = start;
+        changeInsertLength = after;
+        replacedText.setLength(0);
+        replacedText.append(text, start, start + count);
+
         diffStartPosition = start;
         diffRemoveLength = 0;
         diffType = 0;
@@ -62,6 +76,47 @@ class DiffMeasures {
                         && diffInsertLength < diffRemoveLength;
     }
 
+    /**
+     * @param textAfter text after the change
+     * @return true if the change hasn't changed the text, i.e. the replaced region is the same
+     * as the inserted one
+     */
+    public boolean isTextUnchanged(CharSequence textAfter) {
+        return replacedText.length() == changeInsertLength && regionMatches(textAfter, changeInsertLength);
+    }
+
+    /**
+     * @param length number of characters to take
+     * @return beginning of the replaced region of the text
+     */
+    public String getReplacedText(int length) {
+        return replacedText.substring(0, length);
+    }
+
+    /**
+     * Restores the text before the change out of the text after it and the replaced region.
+     *
+     * @param textAfter text after the change
+     * @return text before the change
+     */
+    public String getTextBefore(CharSequence textAfter) {
+        final int insertEnd = changeStart + changeInsertLength;
+        return new StringBuilder(textAfter.length() - changeInsertLength + replacedText.length())
+                .append(textAfter, 0, changeStart)
+                .append(replacedText)
+                .append(textAfter, insertEnd, textAfter.length())
+                .toString();
+    }
+
+    private boolean regionMatches(CharSequence textAfter, int length) {
+        for (int i = 0; i < length; i++) {
+            if (textAfter.charAt(changeStart + i) != replacedText.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void recalculateOnModifyingWord(int realDiffLen) {
         diffRemoveLength -= diffInsertLength;
         diffStartPosition += realDiffLen;
@@ -28,6 +28,7 @@ import android.widget.EditText;
 import android.widget.TextView;
 
 import ru.tinkoff.decoro.FormattedTextChangeListener;
+import ru.tinkoff.decoro.InsertionResult;
 import ru.tinkoff.decoro.Mask;
 import ru.tinkoff.decoro.MaskFactory;
 
@@ -52,8 +53,7 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
     private static final String TAG = "FormatWatcher";
 
     private DiffMeasures diffMeasures = new DiffMeasures();
-
-    private CharSequence textBeforeChange;
+    private final InsertionResult insertionResult = new InsertionResult();
 
     private Mask mask;
     private TextView textView;
@@ -62,6 +62,7 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
     private boolean selfEdit = false;
     private boolean noChanges = false;
     private boolean formattingCancelled = false;
+    private boolean inputRejected = false;
 
     private FormattedTextChangeListener callback;
 
@@ -171,10 +172,8 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
             return;
         }
 
-        // copy original string
-        textBeforeChange = new String(s.toString());
-
-        diffMeasures.calculateBeforeTextChanged(start, count, after);
+        // only the replaced region is copied, the rest of the text stays the same
+        diffMeasures.calculateBeforeTextChanged(s, start, count, after);
     }
 
     @Override
@@ -198,7 +197,7 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
             // an actual character(s). So in the above example we should present a modification as a
             // simple removing of "s".
             if (diffMeasures.isTrimmingSequence()) {
-                CharSequence diffBefore = textBeforeChange.subSequence(diffMeasures.getStartPosition(), diffMeasures.getInsertEndPosition());
+                CharSequence diffBefore = diffMeasures.getReplacedText(diffChars.length());
                 if (diffBefore.equals(diffChars)) {
                     // that's it. We're removing trailing character(s) of a word!
                     // so modify diff info and present it as a removing of those characters
@@ -208,26 +207,26 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
         }
 
         // ask client code - should we proceed the modification of a mask
-        if (callback != null && callback.beforeFormatting(textBeforeChange.toString(), s.toString())) {
+        // full strings are built only if there's someone to ask
+        if (callback != null && callback.beforeFormatting(diffMeasures.getTextBefore(s), s.toString())) {
             formattingCancelled = true;
             return;
         }
 
-        noChanges = textBeforeChange.equals(s.toString());
+        noChanges = diffMeasures.isTextUnchanged(s);
         if (noChanges) {
             return;
         }
 
-        if (diffMeasures.isRemovingChars()) {
-            if (!diffMeasures.isInsertingChars()) {
-                diffMeasures.setCursorPosition(mask.removeBackwards(diffMeasures.getRemoveEndPosition(), diffMeasures.getRemoveLength()));
-            } else {
-                diffMeasures.setCursorPosition(mask.removeBackwardsWithoutHardcoded(diffMeasures.getRemoveEndPosition(), diffMeasures.getRemoveLength()));
-            }
-        }
-
-        if (diffMeasures.isInsertingChars()) {
-            diffMeasures.setCursorPosition(mask.insertAt(diffMeasures.getStartPosition(), diffChars));
+        if (diffMeasures.isRemovingChars() && diffMeasures.isInsertingChars()) {
+            final int diffStart = diffMeasures.getStartPosition();
+            diffMeasures.setCursorPosition(mask.replace(diffStart, diffStart + diffMeasures.getRemoveLength(), diffChars));
+        } else if (diffMeasures.isRemovingChars()) {
+            final int diffStart = diffMeasures.getStartPosition();
+            diffMeasures.setCursorPosition(mask.removeRange(diffStart, diffStart + diffMeasures.getRemoveLength()));
+        } else if (diffMeasures.isInsertingChars()) {
+            diffMeasures.setCursorPosition(mask.insertAt(diffMeasures.getStartPosition(), diffChars, true, insertionResult));
+            inputRejected = insertionResult.getConsumedCount() == 0;
         }
     }
 
@@ -236,32 +235,73 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
         if (formattingCancelled || selfEdit || mask == null || noChanges) {
             formattingCancelled = false;
             noChanges = false;
+            inputRejected = false;
             return;
         }
 
-        String formatted = mask.toString();
+        if (inputRejected) {
+            // none of the inserted characters got to the mask, so they're removed by their range
+            // without comparing them (it may be a long pasted text)
+            inputRejected = false;
+            selfEdit = true;
+            newText.delete(diffMeasures.getStartPosition(), diffMeasures.getInsertEndPosition());
+            selfEdit = false;
+        }
+
+        final String formatted = mask.toString();
 
         final int cursorPosition = diffMeasures.getCursorPosition();
         // force change text of EditText we're attached to
-        // only in case it's necessary (formatted text differs from inputted)
-        if (!formatted.equals(newText.toString())) {
+        // only in case it's necessary (formatted text differs from inputted).
+        // Text is compared in place and only the differing range is replaced, so the rest of
+        // the text keeps its spans and layout
+        final int formattedLength = formatted.length();
+        final int textLength = newText.length();
+        final int commonLength = Math.min(formattedLength, textLength);
+
+        int prefix = 0;
+        while (prefix < commonLength && formatted.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+
+        if (prefix < formattedLength || prefix < textLength) {
+            int suffix = 0;
+            while (suffix < commonLength - prefix
+                    && formatted.charAt(formattedLength - 1 - suffix) == newText.charAt(textLength - 1 - suffix)) {
+                suffix++;
+            }
+
+            int from = prefix;
+            int formattedTo = formattedLength - suffix;
+
             int start = BaseInputConnection.getComposingSpanStart(newText);
-            int end = cursorPosition > newText.length() ? newText.length() : cursorPosition;
+            int end = cursorPosition > textLength ? textLength : cursorPosition;
             CharSequence pasted;
-            if (start == -1 || end == -1) {
+            if (start == -1 || end == -1 || start > end || end > formattedLength) {
                 pasted = formatted;
             } else {
+                // composing region should be replaced as a whole to put composing spans on it
+                from = Math.min(from, start);
+                formattedTo = Math.max(formattedTo, end);
+
                 SpannableStringBuilder sb = new SpannableStringBuilder();
-                sb.append(formatted.substring(0, start));
+                sb.append(formatted, from, start);
                 SpannableString composing = new SpannableString(formatted.substring(start, end));
                 // void setComposingSpans(Spannable text, int start, int end) in BaseInputConnection is hide api
                 BaseInputConnection.setComposingSpans(composing);
                 sb.append(composing);
-                sb.append(formatted.substring(end, formatted.length()));
+                sb.append(formatted, end, formattedTo);
                 pasted = sb;
+                BaseInputConnection.removeComposingSpans(newText);
             }
+
+            // replaced range of the text ends where the unchanged suffix begins
+            final int textTo = textLength - (formattedLength - formattedTo);
+            final int pastedFrom = pasted == formatted ? from : 0;
+            final int pastedTo = pasted == formatted ? formattedTo : pasted.length();
+
             selfEdit = true;
-            newText.replace(0, newText.length(), pasted, 0, formatted.length());
+            newText.replace(from, textTo, pasted, pastedFrom, pastedTo);
             selfEdit = false;
         }
 
@@ -269,8 +309,6 @@ public abstract class FormatWatcher implements TextWatcher, MaskFactory {
             setSelection(cursorPosition);
         }
 
-        textBeforeChange = null;
-
         if (callback != null) {
             callback.onTextFormatted(this, toString());
         }
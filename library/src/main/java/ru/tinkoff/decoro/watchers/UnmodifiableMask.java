@@ -19,8 +19,10 @@ package ru.tinkoff.decoro.watchers;
 import android.os.Parcel;
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
 import java.util.Iterator;
 
+import ru.tinkoff.decoro.InsertionResult;
 import ru.tinkoff.decoro.Mask;
 import ru.tinkoff.decoro.slots.Slot;
 
@@ -46,6 +48,44 @@ class UnmodifiableMask implements Mask {
         return delegate == null ? "" : delegate.toUnformattedString();
     }
 
+    @Override
+    public void renderTo(@NonNull Appendable out) throws IOException {
+        if (delegate != null) {
+            delegate.renderTo(out);
+        }
+    }
+
+    @Override
+    public void renderTo(@NonNull StringBuilder out) {
+        if (delegate != null) {
+            delegate.renderTo(out);
+        }
+    }
+
+    @Override
+    public int renderTo(@NonNull char[] dst, int offset) {
+        return delegate == null ? 0 : delegate.renderTo(dst, offset);
+    }
+
+    @Override
+    public void renderUnformattedTo(@NonNull StringBuilder out) {
+        if (delegate != null) {
+            delegate.renderUnformattedTo(out);
+        }
+    }
+
+    @NonNull
+    @Override
+    public CharSequence asCharSequence() {
+        return delegate == null ? "" : delegate.asCharSequence();
+    }
+
+    @NonNull
+    @Override
+    public CharSequence asUnformattedCharSequence() {
+        return delegate == null ? "" : delegate.asUnformattedCharSequence();
+    }
+
     @Override
     public int getInitialInputPosition() {
         return delegate == null ? -1 : delegate.getInitialInputPosition();
@@ -56,6 +96,11 @@ class UnmodifiableMask implements Mask {
         return delegate != null && delegate.hasUserInput();
     }
 
+    @Override
+    public int getLastInputIndex() {
+        return delegate != null ? delegate.getLastInputIndex() : -1;
+    }
+
     @Override
     public boolean filled() {
         return delegate != null && delegate.filled();
@@ -73,6 +118,21 @@ class UnmodifiableMask implements Mask {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int insertAt(int position, CharSequence input, boolean cursorAfterTrailingHardcoded, @NonNull InsertionResult result) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int replace(int start, int end, CharSequence text) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeRange(int start, int end) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int insertAt(int position, CharSequence input) {
         throw new UnsupportedOperationException();
@@ -152,6 +212,16 @@ class UnmodifiableMask implements Mask {
         return delegate == null ? cursorPosition : delegate.findCursorPositionInUnformattedString(cursorPosition);
     }
 
+    @Override
+    public int toUnformattedPosition(int formattedPosition) {
+        return delegate == null ? formattedPosition : delegate.toUnformattedPosition(formattedPosition);
+    }
+
+    @Override
+    public int toFormattedPosition(int unformattedPosition) {
+        return delegate == null ? unformattedPosition : delegate.toFormattedPosition(unformattedPosition);
+    }
+
     @Override
     public Iterator<Slot> iterator() {
         return delegate == null ? null : delegate.iterator();
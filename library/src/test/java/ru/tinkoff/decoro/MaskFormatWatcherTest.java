@@ -18,6 +18,7 @@ package ru.tinkoff.decoro;
 
 import android.annotation.SuppressLint;
 import android.text.Editable;
+import android.text.TextWatcher;
 import android.widget.TextView;
 
 import org.junit.Test;
@@ -26,8 +27,12 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
 import ru.tinkoff.decoro.slots.PredefinedSlots;
+import ru.tinkoff.decoro.watchers.FormatWatcher;
 import ru.tinkoff.decoro.watchers.MaskFormatWatcher;
 
 import static junit.framework.Assert.assertEquals;
@@ -115,6 +120,122 @@ public class MaskFormatWatcherTest {
         }
     }
 
+    @Test
+    public void replacesOnlyChangedRange() {
+        MaskFormatWatcher watcher =
+                new MaskFormatWatcher(MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER));
+
+        TextView textView = new TextView(RuntimeEnvironment.application);
+        watcher.installOn(textView);
+        textView.setText("+7999123");
+        assertEquals("+7 (999) 123-", textView.getText().toString());
+
+        final List<int[]> changes = new ArrayList<>();
+        textView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                changes.add(new int[]{start, before, count});
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+
+        // formatted text is the same as inputted, so nothing is replaced
+        Editable editable = (Editable) textView.getText();
+        editable.append("4");
+        assertEquals("+7 (999) 123-4", textView.getText().toString());
+        assertEquals(1, changes.size());
+
+        changes.clear();
+        editable.insert(5, "8");
+        assertEquals("+7 (989) 912-34", textView.getText().toString());
+        // user's insertion and formatter's fix of the text after the common "+7 (989" prefix
+        assertEquals(2, changes.size());
+        assertEquals(7, changes.get(1)[0]);
+        assertEquals(7, changes.get(1)[1]);
+    }
+
+    @Test
+    public void rejectedInputIsRemovedByItsRange() {
+        MaskFormatWatcher watcher =
+                new MaskFormatWatcher(MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER));
+
+        TextView textView = new TextView(RuntimeEnvironment.application);
+        watcher.installOn(textView);
+        textView.setText("+7999123");
+
+        final List<int[]> changes = new ArrayList<>();
+        textView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                changes.add(new int[]{start, before, count});
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+
+        Editable editable = (Editable) textView.getText();
+        editable.insert(13, "abcdefghij");
+        assertEquals("+7 (999) 123-", textView.getText().toString());
+        assertEquals(13, watcher.getCursorPosition());
+        // user's insertion and removal of exactly the inserted characters
+        assertEquals(2, changes.size());
+        assertEquals(13, changes.get(1)[0]);
+        assertEquals(10, changes.get(1)[1]);
+        assertEquals(0, changes.get(1)[2]);
+    }
+
+    @Test
+    public void callbackGetsTextBeforeAndAfterChange() {
+        MaskFormatWatcher watcher =
+                new MaskFormatWatcher(MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER));
+
+        TextView textView = new TextView(RuntimeEnvironment.application);
+        watcher.installOn(textView);
+        textView.setText("+7999123");
+
+        final List<String> values = new ArrayList<>();
+        watcher.setCallback(new FormattedTextChangeListener() {
+            @Override
+            public boolean beforeFormatting(String oldValue, String newValue) {
+                values.add(oldValue);
+                values.add(newValue);
+                return false;
+            }
+
+            @Override
+            public void onTextFormatted(FormatWatcher formatter, String newFormattedText) {
+                values.add(newFormattedText);
+            }
+        });
+
+        Editable editable = (Editable) textView.getText();
+        editable.replace(4, 7, "55");
+        assertEquals("+7 (999) 123-", values.get(0));
+        assertEquals("+7 (55) 123-", values.get(1));
+        assertEquals("+7 (551) 23", values.get(2));
+
+        // a word replaced with its own beginning
+        values.clear();
+        editable.replace(9, 11, "2");
+        assertEquals("+7 (551) 23", values.get(0));
+        assertEquals("+7 (551) 2", values.get(1));
+        assertEquals("+7 (551) 2", textView.getText().toString());
+        assertEquals(10, watcher.getCursorPosition());
+    }
+
     @Test
     public void forbidCursorMoving() {
         MaskFormatWatcher watcher =
@@ -21,6 +21,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Iterator;
+
 import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
 import ru.tinkoff.decoro.slots.PredefinedSlots;
 import ru.tinkoff.decoro.slots.Slot;
@@ -29,6 +31,9 @@ import ru.tinkoff.decoro.slots.SlotValidators;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -208,6 +213,536 @@ public class MaskImplTest {
         assertEquals("+359 ", phoneMask.toString());
     }
 
+    @Test
+    public void removeBackwardsKeepsSlots() {
+        final Slot[] slots = new Slot[1000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = PredefinedSlots.any();
+        }
+        final Mask longMask = MaskImpl.createTerminated(slots);
+        longMask.insertFront("яяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяяя");
+
+        final Slot[] before = new Slot[longMask.getSize()];
+        int index = 0;
+        for (Slot slot : longMask) {
+            before[index++] = slot;
+        }
+
+        longMask.removeBackwards(30, 2);
+        assertEquals(55, longMask.toString().length());
+
+        // values are moved between the same slots, nothing is re-created
+        index = 0;
+        for (Slot slot : longMask) {
+            assertSame(before[index++], slot);
+        }
+        assertEquals(Character.valueOf('я'), before[54].getValue());
+        assertEquals(null, before[55].getValue());
+
+        longMask.removeBackwards(longMask.getSize() - 1, longMask.getSize());
+        assertEquals("", longMask.toString());
+        assertEquals(null, before[0].getValue());
+    }
+
+    @Test
+    public void removeRangeMovesFollowingInput() {
+        final Slot[] slots = new Slot[11];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i == 3 || i == 7 ? PredefinedSlots.hardcodedSlot('-') : PredefinedSlots.digit();
+        }
+
+        final Mask mask = MaskImpl.createTerminated(slots);
+        mask.insertFront("123456789");
+        assertEquals(1, mask.removeRange(1, 6));
+        assertEquals("167-89", mask.toString());
+
+        assertEquals(4, mask.removeRange(4, 4));
+        assertEquals("167-89", mask.toString());
+    }
+
+    @Test
+    public void removeRangeChecksEachPulledValueOnce() {
+        final CountingValidators validators = new CountingValidators(new SlotValidators.GenerousValidator());
+        final int size = 2000;
+        final Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(Slot.RULES_DEFAULT, null, validators);
+        }
+        final Mask longMask = MaskImpl.createTerminated(slots);
+
+        // much more distinct values than there're slots in the range
+        final StringBuilder input = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            input.append((char) ('a' + i % 26));
+        }
+        longMask.insertFront(input);
+
+        validators.calls = 0;
+        assertEquals(0, longMask.removeRange(0, size / 2));
+        assertEquals(input.substring(size / 2), longMask.toString());
+        // values are not validated by every slot on their way
+        assertTrue("validated " + validators.calls + " times", validators.calls <= size);
+    }
+
+    @Test
+    public void removeRangeChecksPulledValuesOncePerDistinctValidators() {
+        final int size = 2000;
+        final int[] calls = new int[1];
+
+        // more distinct sets than a mask usually has
+        final Slot.SlotValidator[] distinct = new Slot.SlotValidator[12];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = new CountingValidator(calls);
+        }
+        final Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(Slot.RULES_DEFAULT, null, SlotValidatorSet.setOf(distinct[i % distinct.length]));
+        }
+        assertPulledValuesChecked(slots, calls, distinct.length * size);
+
+        // equal sets which are not shared
+        final Slot.SlotValidator same = new CountingValidator(calls);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(Slot.RULES_DEFAULT, null, SlotValidatorSet.setOf(same));
+        }
+        assertPulledValuesChecked(slots, calls, size);
+    }
+
+    private static void assertPulledValuesChecked(Slot[] slots, int[] calls, int maxCalls) {
+        final Mask longMask = MaskImpl.createTerminated(slots);
+        final StringBuilder input = new StringBuilder(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            input.append((char) ('a' + i % 26));
+        }
+        longMask.insertFront(input);
+
+        calls[0] = 0;
+        assertEquals(0, longMask.removeRange(0, slots.length / 2));
+        assertEquals(input.substring(slots.length / 2), longMask.toString());
+        assertTrue("validated " + calls[0] + " times", calls[0] <= maxCalls);
+    }
+
+    @Test
+    public void pasteReadsEachCharacterOnce() {
+        final int size = 10000;
+        final Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = i % 5 == 4 ? PredefinedSlots.hardcodedSlot('-') : PredefinedSlots.any();
+        }
+        final Mask longMask = MaskImpl.createTerminated(slots);
+
+        final int[] charsRead = new int[1];
+        // input is read by index, it's neither copied nor converted to a string
+        final CharSequence input = new CharSequence() {
+            @Override
+            public int length() {
+                return size;
+            }
+
+            @Override
+            public char charAt(int index) {
+                charsRead[0]++;
+                return (char) ('а' + index % 32);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String toString() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        longMask.insertFront(input);
+
+        assertTrue(longMask.filled());
+        assertEquals(size, charsRead[0]);
+    }
+
+    @Test
+    public void rendersLongMasksInOnePass() throws Exception {
+        for (int size = 10; size <= 100000; size *= 10) {
+            final Mask longMask = MaskImpl.createNonTerminated(filledSlots(size));
+
+            final String formatted = longMask.toString();
+            assertEquals(size, formatted.length());
+            assertEquals(size - size / 4, longMask.toUnformattedString().length());
+
+            // nothing changed, so nothing is rendered again
+            assertSame(formatted, longMask.toString());
+
+            longMask.iterator().next().setValue('1');
+            final String changed = longMask.toString();
+            assertNotSame(formatted, changed);
+            assertEquals('1', changed.charAt(0));
+            assertEquals(formatted.substring(1), changed.substring(1));
+        }
+
+        // rendering doesn't go deeper into the stack for each slot
+        final Mask longMask = MaskImpl.createNonTerminated(filledSlots(200000));
+        final Throwable[] failure = new Throwable[1];
+        final Thread renderer = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    longMask.toString();
+                    longMask.toUnformattedString();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        }, "renderer", 64 * 1024);
+        renderer.start();
+        renderer.join();
+        assertNull(failure[0]);
+        assertEquals(200000, longMask.toString().length());
+    }
+
+    @Test
+    public void renderingIsCachedUntilChange() {
+        final MaskImpl mask = (MaskImpl) this.mask;
+        mask.insertFront("12");
+        final int version = mask.getVersion();
+        final String formatted = mask.toString();
+        final String unformatted = mask.toUnformattedString();
+        assertEquals("1-2", formatted);
+        assertEquals("1-2", unformatted);
+
+        assertSame(formatted, mask.toString());
+        assertSame(unformatted, mask.toUnformattedString());
+        assertEquals(version, mask.getVersion());
+
+        mask.setShowingEmptySlots(true);
+        assertEquals("1-2_", mask.toString());
+
+        mask.setPlaceholder('*');
+        assertEquals("1-2*", mask.toString());
+
+        // slots changed directly are noticed as well
+        final Iterator<Slot> slots = mask.iterator();
+        slots.next();
+        slots.next();
+        slots.next().setValue('9');
+        assertEquals("1-92", mask.toString());
+        assertEquals("1-92", mask.toUnformattedString());
+
+        mask.removeBackwards(3, 2);
+        assertEquals("1-**", mask.toString());
+        assertTrue(version != mask.getVersion());
+    }
+
+    @Test
+    public void renderToBuffers() {
+        final Mask phone = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        phone.insertFront("999123");
+
+        final StringBuilder out = new StringBuilder("> ");
+        phone.renderTo(out);
+        assertEquals("> " + phone.toString(), out.toString());
+
+        out.setLength(0);
+        phone.renderUnformattedTo(out);
+        assertEquals(phone.toUnformattedString(), out.toString());
+
+        final char[] dst = new char[phone.getSize() + 1];
+        final int length = phone.renderTo(dst, 1);
+        assertEquals(phone.toString(), new String(dst, 1, length));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void renderToShortArray() {
+        final Mask phone = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        phone.insertFront("999123");
+        phone.renderTo(new char[phone.toString().length()], 1);
+    }
+
+    @Test
+    public void renderToReusedBufferKeepsCapacity() {
+        final Mask phone = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        phone.insertFront("9991234567");
+        final StringBuilder out = new StringBuilder(phone.getSize());
+        final int capacity = out.capacity();
+        final char[] dst = new char[phone.getSize()];
+
+        for (int i = 0; i < 1000; i++) {
+            out.setLength(0);
+            phone.renderTo(out);
+            assertEquals(18, phone.renderTo(dst, 0));
+        }
+
+        // rendering fits into the buffer sized for the mask, it's never grown
+        assertEquals(capacity, out.capacity());
+        assertEquals("+7 (999) 123-45-67", out.toString());
+        assertEquals("+7 (999) 123-45-67", new String(dst, 0, 18));
+    }
+
+    @Test
+    public void charSequenceViewsFollowMask() {
+        final Mask phone = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        final CharSequence formatted = phone.asCharSequence();
+        final CharSequence unformatted = phone.asUnformattedCharSequence();
+        assertSame(formatted, phone.asCharSequence());
+
+        phone.insertFront("999123");
+        assertEquals("+7 (999) 123-", formatted.toString());
+        assertEquals(13, formatted.length());
+        assertEquals('(', formatted.charAt(3));
+        assertEquals("+7999123", unformatted.toString());
+        assertEquals(8, unformatted.length());
+        assertEquals('1', unformatted.charAt(5));
+        assertEquals("999", unformatted.subSequence(2, 5).toString());
+
+        phone.removeBackwards(11, 3);
+        assertEquals(phone.toString(), formatted.toString());
+        assertEquals(phone.toString().length(), formatted.length());
+        assertEquals(phone.toUnformattedString().length(), unformatted.length());
+        assertEquals('9', unformatted.charAt(4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charSequenceViewIsBounded() {
+        mask.insertFront("12");
+        mask.asCharSequence().charAt(3);
+    }
+
+    @Test
+    public void replaceIsSameAsRemoveAndInsert() {
+        final MaskImpl phone = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        phone.insertFront("9991234567");
+
+        // in place: digits are replaced with digits
+        assertReplace(phone, 9, 12, "555");
+        // range includes hardcoded slot
+        assertReplace(phone, 10, 14, "0000");
+        // text of different length
+        assertReplace(phone, 4, 6, "1");
+        assertReplace(phone, 4, 5, "12");
+        // text is not valid for the slots
+        assertReplace(phone, 4, 6, "ab");
+
+        // input pushed back stops at hardcoded slot of the same value
+        final MaskImpl sevens = MaskImpl.createTerminated(new Slot[]{
+                PredefinedSlots.any(),
+                PredefinedSlots.any(),
+                PredefinedSlots.hardcodedSlot('7'),
+                PredefinedSlots.any()
+        });
+        sevens.insertFront("ab77");
+        assertReplace(sevens, 0, 1, "c");
+        assertReplace(sevens, 0, 2, "d");
+        assertReplace(sevens, 0, 1, "ef");
+
+        // typing over a selection in a long mask
+        final MaskImpl digits = MaskImpl.createTerminated(filledSlots(2000));
+        assertReplace(digits, 12, 15, "1");
+        assertReplace(digits, 12, 13, "234");
+        assertReplace(digits, 1996, 1999, "67");
+    }
+
+    private static void assertReplace(MaskImpl mask, int start, int end, String text) {
+        final MaskImpl expected = new MaskImpl(mask);
+        expected.removeBackwardsWithoutHardcoded(end - 1, end - start);
+        final int expectedCursor = expected.insertAt(start, text);
+
+        assertEquals(expectedCursor, mask.replace(start, end, text));
+        assertEquals(expected.toString(), mask.toString());
+    }
+
+    @Test
+    public void insertionResult() {
+        final InsertionResult result = new InsertionResult();
+
+        assertEquals(4, mask.insertAt(0, "12345", true, result));
+        assertEquals("1-23", mask.toString());
+        assertEquals(4, result.getCursorPosition());
+        assertEquals(3, result.getConsumedCount());
+        assertEquals(2, result.getDroppedCount());
+
+        mask.clear();
+        mask.insertFront("1");
+        assertEquals(4, mask.insertAt(2, "4567", true, result));
+        assertEquals("1-45", mask.toString());
+        assertEquals(2, result.getConsumedCount());
+        assertEquals(2, result.getDroppedCount());
+
+        assertEquals(5, mask.insertAt(5, "1", true, result));
+        assertEquals(0, result.getConsumedCount());
+        assertEquals(1, result.getDroppedCount());
+    }
+
+    @Test
+    public void longPasteToShortMaskStopsEarly() {
+        final int[] charsRead = new int[1];
+        final CharSequence pasted = new CharSequence() {
+            @Override
+            public int length() {
+                return 1000000;
+            }
+
+            @Override
+            public char charAt(int index) {
+                charsRead[0]++;
+                return '7';
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        final InsertionResult result = new InsertionResult();
+        mask.insertAt(0, pasted, true, result);
+
+        assertEquals("7-77", mask.toString());
+        assertEquals(3, result.getConsumedCount());
+        assertEquals(999997, result.getDroppedCount());
+        assertTrue(charsRead[0] < 10);
+    }
+
+    @Test
+    public void rejectedInputDoesNotScanMask() {
+        final StringBuilder letters = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            letters.append((char) ('a' + i % 26));
+        }
+
+        final Slot[] slots = new Slot[100000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = PredefinedSlots.digit();
+        }
+
+        // the whole list is known to reject letters, so the search jumps over it at once
+        final SlotsList digitsList = SlotsList.ofArray(slots);
+        assertEquals(slots.length, digitsList.nextNotRejecting(0, 'a'));
+        assertEquals(0, digitsList.nextNotRejecting(0, '1'));
+
+        final Mask digits = MaskImpl.createTerminated(slots);
+        digits.setShowingEmptySlots(true);
+        digits.insertFront(letters);
+        assertFalse(digits.hasUserInput());
+
+        // a set of unknown class is asked as it may accept anything
+        final CountingValidators validators = new CountingValidators(new SlotValidators.MaskedDigitValidator('#'));
+        slots[500] = new Slot(Slot.RULES_DEFAULT, null, validators);
+        final SlotsList mixedList = SlotsList.ofArray(slots);
+        assertEquals(500, mixedList.nextNotRejecting(0, 'a'));
+        assertEquals(slots.length, mixedList.nextNotRejecting(501, 'a'));
+
+        final Mask mixed = MaskImpl.createTerminated(slots);
+        mixed.setShowingEmptySlots(true);
+        mixed.insertFront(letters);
+        assertFalse(mixed.hasUserInput());
+        assertTrue(validators.calls > 0);
+    }
+
+    @Test
+    public void validatorsChangedAfterMaskCreationAreNoticed() {
+        final Mask digits = MaskImpl.createTerminated(new Slot[]{
+                new Slot(null, new SlotValidators.DigitValidator()),
+                new Slot(null, new SlotValidators.DigitValidator())
+        });
+
+        for (Slot slot : digits) {
+            slot.getValidators().add(new SlotValidators.LetterValidator());
+        }
+
+        digits.insertFront("ab");
+        assertEquals("ab", digits.toString());
+    }
+
+    private static class CountingValidator implements Slot.SlotValidator {
+
+        private final int[] calls;
+
+        CountingValidator(int[] calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        public boolean validate(char value) {
+            calls[0]++;
+            return true;
+        }
+    }
+
+    private static class CountingValidators extends SlotValidatorSet {
+
+        int calls;
+
+        CountingValidators(Slot.SlotValidator validator) {
+            add(validator);
+        }
+
+        @Override
+        public boolean validate(char value) {
+            calls++;
+            return super.validate(value);
+        }
+    }
+
+    private static Slot[] filledSlots(int size) {
+        final Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 4 == 3) {
+                slots[i] = PredefinedSlots.hardcodedSlot('-').withTags(Slot.TAG_DECORATION);
+            } else {
+                slots[i] = PredefinedSlots.digit();
+                slots[i].setValue('5');
+            }
+        }
+        return slots;
+    }
+
+    @Test
+    public void shiftsValuesOfMillionSlots() {
+        final int size = 1000000;
+        final Slot[] slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = PredefinedSlots.any();
+            if (i < size - 1) {
+                slots[i].setValue('a');
+            }
+        }
+        final Mask longMask = MaskImpl.createTerminated(slots);
+
+        // every value is pushed one slot to the right
+        assertEquals(1, longMask.insertFront("b"));
+        assertTrue(longMask.filled());
+        assertEquals('b', longMask.toString().charAt(0));
+        assertEquals('a', longMask.toString().charAt(size - 1));
+
+        // every value is pulled one slot to the left
+        assertEquals(0, longMask.removeBackwards(0, 1));
+        assertEquals(size - 1, longMask.toString().length());
+        assertEquals('a', longMask.toString().charAt(0));
+    }
+
+    @Test
+    public void filledIgnoresExtensionSlots() {
+        final Mask nonTerminated = MaskImpl.createNonTerminated(new Slot[]{
+                PredefinedSlots.any(),
+                PredefinedSlots.any(),
+                PredefinedSlots.any()
+        });
+        nonTerminated.setForbidInputWhenFilled(true);
+
+        nonTerminated.insertFront("ab");
+        assertFalse(nonTerminated.filled());
+
+        // tail is extended but the new slot doesn't count
+        nonTerminated.insertAt(2, "c");
+        assertTrue(nonTerminated.filled());
+        assertEquals(1, nonTerminated.insertAt(1, "d"));
+        assertEquals("abc", nonTerminated.toString());
+
+        nonTerminated.removeBackwards(1, 1);
+        assertFalse(nonTerminated.filled());
+    }
+
     @Test
     public void clear() {
         mask.insertFront("123");
@@ -227,6 +762,32 @@ public class MaskImplTest {
         assertEquals(2, mask.findCursorPositionInUnformattedString(4));
     }
 
+    @Test
+    public void positionsMapping() throws Exception {
+        // +7 (___) ___-__-__
+        final Mask mask = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        assertEquals(0, mask.toUnformattedPosition(0));
+        assertEquals(2, mask.toUnformattedPosition(3));
+        assertEquals(2, mask.toUnformattedPosition(4));
+        assertEquals(5, mask.toUnformattedPosition(7));
+        assertEquals(mask.getSize() - 6, mask.toUnformattedPosition(mask.getSize()));
+
+        assertEquals(0, mask.toFormattedPosition(0));
+        assertEquals(2, mask.toFormattedPosition(2));
+        assertEquals(5, mask.toFormattedPosition(3));
+        assertEquals(mask.getSize(), mask.toFormattedPosition(mask.getSize() - 6));
+
+        for (int i = 0; i <= mask.getSize() - 6; i++) {
+            assertEquals(i, mask.toUnformattedPosition(mask.toFormattedPosition(i)));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void toFormattedPosition_upper() throws Exception {
+        final Mask mask = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
+        mask.toFormattedPosition(mask.getSize() - 5);
+    }
+
     @Test(expected = IndexOutOfBoundsException.class)
     public void findCursorPositionInUnformattedString_lower() throws Exception {
         final Mask mask = MaskImpl.createTerminated(PredefinedSlots.RUS_PHONE_NUMBER);
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
+import ru.tinkoff.decoro.parser.SlotsParser;
+import ru.tinkoff.decoro.parser.UnderscoreDigitSlotsParser;
+import ru.tinkoff.decoro.slots.Slot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Mikhail Artemev
+ */
+public class ParsedSlotsCacheTest {
+
+    @Before
+    public void setUp() {
+        ParsedSlotsCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ParsedSlotsCache.setMaxSize(ParsedSlotsCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Test
+    public void masksOfSameDescriptorParseOnce() {
+        final CountingParser parser = new CountingParser();
+        final MaskDescriptor descriptor = MaskDescriptor.ofRawMask("___-__");
+
+        final Mask first = new MaskFactoryImpl(parser, descriptor).createMask();
+        final Mask second = new MaskFactoryImpl(parser, descriptor.setTerminated(false)).createMask();
+        assertEquals(1, parser.parsed);
+
+        // masks don't share the state
+        first.insertFront("12345");
+        assertEquals("123-45", first.toString());
+        assertEquals("", second.toString());
+
+        new MaskFactoryImpl(parser, MaskDescriptor.ofRawMask("__-___")).createMask();
+        assertEquals(2, parser.parsed);
+
+        // every instance of a custom parser parses on its own
+        final CountingParser anotherParser = new CountingParser();
+        new MaskFactoryImpl(anotherParser, descriptor).createMask();
+        assertEquals(1, anotherParser.parsed);
+    }
+
+    @Test
+    public void libraryParsersShareSlots() {
+        final Slot[] slots = ParsedSlotsCache.parseSlots(new UnderscoreDigitSlotsParser(), "___-__");
+        assertSame(slots, ParsedSlotsCache.parseSlots(new UnderscoreDigitSlotsParser(), "___-__"));
+        assertNotSame(slots, ParsedSlotsCache.parseSlots(new UnderscoreDigitSlotsParser(), "__-___"));
+    }
+
+    @Test
+    public void leastRecentlyUsedSlotsAreDropped() {
+        final SlotsParser parser = new PhoneNumberUnderscoreSlotsParser();
+
+        // phone masks of all the countries fit into the cache
+        final Slot[][] countries = new Slot[300][];
+        for (int i = 0; i < countries.length; i++) {
+            countries[i] = ParsedSlotsCache.parseSlots(parser, countryMask(i));
+        }
+        for (int i = 0; i < countries.length; i++) {
+            assertSame(countries[i], ParsedSlotsCache.parseSlots(parser, countryMask(i)));
+        }
+
+        // the first country is used again and stays in the cache
+        for (int i = 0; i < ParsedSlotsCache.DEFAULT_MAX_SIZE - 1; i++) {
+            ParsedSlotsCache.parseSlots(parser, "+7 (" + i + ") ___");
+            ParsedSlotsCache.parseSlots(parser, countryMask(0));
+        }
+        assertSame(countries[0], ParsedSlotsCache.parseSlots(parser, countryMask(0)));
+        assertNotSame(countries[1], ParsedSlotsCache.parseSlots(parser, countryMask(1)));
+    }
+
+    @Test
+    public void maxSizeCanBeChanged() {
+        final SlotsParser parser = new PhoneNumberUnderscoreSlotsParser();
+        final Slot[][] countries = new Slot[300][];
+        for (int i = 0; i < countries.length; i++) {
+            countries[i] = ParsedSlotsCache.parseSlots(parser, countryMask(i));
+        }
+
+        // the least recently used masks are dropped right away
+        ParsedSlotsCache.setMaxSize(100);
+        assertNotSame(countries[199], ParsedSlotsCache.parseSlots(parser, countryMask(199)));
+        assertSame(countries[299], ParsedSlotsCache.parseSlots(parser, countryMask(299)));
+
+        ParsedSlotsCache.setMaxSize(0);
+        final Slot[] slots = ParsedSlotsCache.parseSlots(parser, countryMask(0));
+        assertNotSame(slots, ParsedSlotsCache.parseSlots(parser, countryMask(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMaxSize() {
+        ParsedSlotsCache.setMaxSize(-1);
+    }
+
+    private static String countryMask(int country) {
+        return "+" + country + " (___) ___-__-__";
+    }
+
+    private static class CountingParser extends UnderscoreDigitSlotsParser {
+
+        int parsed;
+
+        @NonNull
+        @Override
+        public Slot[] parseSlots(@NonNull CharSequence rawMask) {
+            parsed++;
+            return super.parseSlots(rawMask);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import org.junit.Test;
+
+import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
+import ru.tinkoff.decoro.parser.UnderscoreDigitSlotsParser;
+import ru.tinkoff.decoro.slots.PredefinedSlots;
+import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotInterner;
+import ru.tinkoff.decoro.slots.SlotValidatorSet;
+import ru.tinkoff.decoro.slots.SlotValidators;
+import ru.tinkoff.decoro.slots.ValueInterpreter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Mikhail Artemev
+ */
+public class SlotInternerTest {
+
+    @Test
+    public void equalValidatorsAreShared() {
+        final SlotValidatorSet digits = SlotInterner.validators(new SlotValidators.DigitValidator());
+        assertTrue(digits.isShared());
+        assertSame(digits, SlotInterner.validators(new SlotValidators.DigitValidator()));
+        assertSame(digits, SlotInterner.validators(digits));
+        assertSame(digits, PredefinedSlots.digit().peekValidators());
+        assertSame(digits, new Slot(null, new SlotValidators.DigitValidator()).peekValidators());
+
+        final SlotValidatorSet lettersAndDigits = SlotInterner.validators(
+                new SlotValidators.LetterValidator(), new SlotValidators.DigitValidator());
+        assertNotSame(digits, lettersAndDigits);
+        assertSame(lettersAndDigits, SlotInterner.validators(
+                new SlotValidators.DigitValidator(), new SlotValidators.LetterValidator()));
+
+        assertFalse(SlotValidatorSet.setOf(new SlotValidators.DigitValidator()).isShared());
+
+        // a set with no equal shared one is copied and stays changeable
+        final SlotValidatorSet own = SlotValidatorSet.setOf(new SlotValidators.MaskedDigitValidator('?'));
+        final SlotValidatorSet shared = SlotInterner.validators(own);
+        assertNotSame(own, shared);
+        assertEquals(own, shared);
+        assertTrue(shared.isShared());
+        assertFalse(own.isShared());
+        own.add(new SlotValidators.LetterValidator());
+        assertFalse(shared.validate('a'));
+    }
+
+    @Test
+    public void validatorSubclassesAreNotShared() {
+        final SlotValidatorSet plus = new PlusValidators();
+        plus.add(new SlotValidators.DigitValidator());
+
+        assertSame(plus, SlotInterner.validators(plus));
+        assertFalse(plus.isShared());
+        assertTrue(SlotInterner.validators(plus).validate('+'));
+    }
+
+    @Test
+    public void parsedSlotsShareValidators() {
+        final Slot[] slots = new UnderscoreDigitSlotsParser().parseSlots("___-___");
+        final Slot[] phoneSlots = new PhoneNumberUnderscoreSlotsParser().parseSlots("+7 (9__) ___");
+
+        assertSame(slots[0].peekValidators(), slots[6].peekValidators());
+        assertSame(slots[3].peekValidators(), phoneSlots[2].peekValidators());
+        assertSame(slots[0].peekValidators(), phoneSlots[5].peekValidators());
+        assertSame(slots[0].peekValidators(), phoneSlots[4].peekValidators());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedValidatorsCannotBeChanged() {
+        SlotInterner.validators(new SlotValidators.GenerousValidator()).add(new SlotValidators.DigitValidator());
+    }
+
+    @Test
+    public void sharedValidatorsAreCopiedToBeChanged() {
+        final Slot slot = PredefinedSlots.digit();
+        final Slot other = PredefinedSlots.digit();
+
+        final SlotValidatorSet validators = slot.getValidators();
+        assertFalse(validators.isShared());
+        assertSame(validators, slot.getValidators());
+        validators.add(new SlotValidators.LetterValidator());
+
+        assertTrue(slot.peekValidators().validate('a'));
+        assertFalse(other.peekValidators().validate('a'));
+        assertSame(other.peekValidators(), PredefinedSlots.digit().peekValidators());
+    }
+
+    @Test
+    public void equalInterpretersAreShared() {
+        final ValueInterpreter upperCase = SlotInterner.interpreter(new UpperCaseInterpreter());
+        assertSame(upperCase, SlotInterner.interpreter(new UpperCaseInterpreter()));
+        assertEquals(Character.valueOf('A'), upperCase.interpret('a'));
+
+        final Slot slot = PredefinedSlots.any().withValueInterpreter(new UpperCaseInterpreter());
+        assertSame(upperCase, slot.getValueInterpreter());
+        assertSame(upperCase, new Slot(slot).getValueInterpreter());
+    }
+
+    private static class PlusValidators extends SlotValidatorSet {
+
+        @Override
+        public boolean validate(char value) {
+            return value == '+' || super.validate(value);
+        }
+    }
+
+    private static class UpperCaseInterpreter implements ValueInterpreter {
+
+        @Override
+        public Character interpret(Character character) {
+            return character == null ? null : Character.toUpperCase(character);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof UpperCaseInterpreter;
+        }
+
+        @Override
+        public int hashCode() {
+            return UpperCaseInterpreter.class.hashCode();
+        }
+    }
+}
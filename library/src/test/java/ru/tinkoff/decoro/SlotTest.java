@@ -26,13 +26,18 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.util.Arrays;
+import java.util.HashSet;
 
+import ru.tinkoff.decoro.slots.CharValueInterpreter;
 import ru.tinkoff.decoro.slots.PredefinedSlots;
 import ru.tinkoff.decoro.slots.Slot;
 import ru.tinkoff.decoro.slots.SlotValidatorSet;
 import ru.tinkoff.decoro.slots.SlotValidators;
+import ru.tinkoff.decoro.slots.TableValueInterpreter;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -60,6 +65,72 @@ public class SlotTest {
         parcel.recycle();
     }
 
+    @Test
+    public void parcelableKeepsValidatorSubclass() {
+        final SlotValidatorSet validators = new PlusValidators();
+        validators.add(new SlotValidators.DigitValidator());
+        Slot before = new Slot(Slot.RULES_DEFAULT, null, validators);
+        assertTrue(before.canInsertHere('+'));
+
+        Parcel parcel = Parcel.obtain();
+        before.writeToParcel(parcel, 0);
+
+        parcel.setDataPosition(0);
+
+        Slot after = Slot.CREATOR.createFromParcel(parcel);
+
+        assertEquals(PlusValidators.class, after.peekValidators().getClass());
+        assertTrue(after.canInsertHere('+'));
+        assertTrue(after.canInsertHere('5'));
+        assertFalse(after.canInsertHere('a'));
+
+        parcel.recycle();
+    }
+
+    @Test
+    public void parcelableSharesPlainValidators() {
+        Parcel parcel = Parcel.obtain();
+        PredefinedSlots.digit().writeToParcel(parcel, 0);
+
+        parcel.setDataPosition(0);
+
+        Slot after = Slot.CREATOR.createFromParcel(parcel);
+
+        assertSame(PredefinedSlots.digit().peekValidators(), after.peekValidators());
+
+        parcel.recycle();
+    }
+
+    @Test
+    public void charValueInterpreter() {
+        final Slot first = PredefinedSlots.digit().withValueInterpreter(
+                TableValueInterpreter.replacing("8+", "7" + CharValueInterpreter.NO_VALUE));
+        final Slot second = PredefinedSlots.digit().withValueInterpreter(TableValueInterpreter.FULL_WIDTH_DIGITS);
+        first.setNextSlot(second);
+        second.setPrevSlot(first);
+
+        assertTrue(first.canInsertHere('8'));
+        assertFalse(first.canInsertHere('+'));
+        assertTrue(second.canInsertHere('\uFF15'));
+        assertFalse(second.canInsertHere('a'));
+
+        first.setValue('8');
+        assertEquals(Character.valueOf('7'), first.getValue());
+
+        // previous value is pushed to the next slot and interpreted there
+        first.setValue('\uFF19');
+        assertEquals(Character.valueOf('\uFF19'), first.getValue());
+        assertEquals(Character.valueOf('7'), second.getValue());
+
+        second.setValue('\uFF15');
+        assertEquals(Character.valueOf('5'), second.getValue());
+
+        // rejected value removes the current one pulling the next value
+        first.setValue('+');
+        assertEquals(Character.valueOf('5'), first.getValue());
+        assertEquals(null, second.getValue());
+    }
+
     @Test
     public void arrayEquals() {
         Slot[] s1 = new Slot[]{PredefinedSlots.digit()};
@@ -69,6 +140,29 @@ public class SlotTest {
         assertTrue(Arrays.equals(s1, s2));
     }
 
+    @Test
+    public void tags() {
+        Slot slot = PredefinedSlots.any().withTags(Slot.TAG_DECORATION, 42, -7);
+        assertTrue(slot.hasTag(Slot.TAG_DECORATION));
+        assertTrue(slot.hasTag(42));
+        assertFalse(slot.hasTag(Slot.TAG_EXTENSION));
+        assertEquals(new HashSet<>(Arrays.asList(Slot.TAG_DECORATION, 42, -7)), slot.getTags());
+
+        slot.getTags().remove(42);
+        slot.getTags().add(Slot.TAG_EXTENSION);
+        assertFalse(slot.hasTag(42));
+        assertTrue(slot.hasTag(Slot.TAG_EXTENSION));
+        assertEquals(3, slot.getTags().size());
+
+        Slot copy = new Slot(slot);
+        assertEquals(slot, copy);
+        assertEquals(slot.hashCode(), copy.hashCode());
+
+        copy.withTags(1);
+        assertFalse(slot.hasTag(1));
+        assertFalse(slot.equals(copy));
+    }
+
     @Test
     public void setValueOffset(){
         Slot b = new Slot(Slot.RULES_DEFAULT, null, null);
@@ -142,4 +236,11 @@ public class SlotTest {
         Assert.assertNull(second.getValue());
     }
 
+    private static class PlusValidators extends SlotValidatorSet {
+
+        @Override
+        public boolean validate(char value) {
+            return value == '+' || super.validate(value);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotValidatorSet;
+import ru.tinkoff.decoro.slots.SlotValidators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Mikhail Artemev
+ */
+public class SlotValidatorSetTest {
+
+    private static final Slot.SlotValidator VOWELS = new Slot.SlotValidator() {
+        @Override
+        public boolean validate(char value) {
+            return "aeiouаеиоу".indexOf(value) >= 0;
+        }
+    };
+
+    @Test
+    public void validatesAsAnyOfValidators() {
+        assertValidatesAsAnyOf();
+        assertValidatesAsAnyOf(new SlotValidators.DigitValidator());
+        assertValidatesAsAnyOf(new SlotValidators.GenerousValidator());
+        assertValidatesAsAnyOf(new SlotValidators.LetterValidator(true, false));
+        assertValidatesAsAnyOf(new SlotValidators.LetterValidator(false, true));
+        assertValidatesAsAnyOf(new SlotValidators.MaskedDigitValidator());
+        assertValidatesAsAnyOf(new SlotValidators.MaskedDigitValidator('#', 'Ж'));
+        assertValidatesAsAnyOf(new SlotValidators.MaskedDigitValidator('·'));
+        assertValidatesAsAnyOf(new SlotValidators.DigitValidator(), new SlotValidators.LetterValidator(false, true));
+        assertValidatesAsAnyOf(new SlotValidators.DigitValidator(), VOWELS);
+    }
+
+    @Test
+    public void validatesChangedSet() {
+        final SlotValidatorSet set = SlotValidatorSet.setOf(new SlotValidators.DigitValidator());
+        assertTrue(set.validate('1'));
+        assertFalse(set.validate('a'));
+
+        set.add(new SlotValidators.LetterValidator());
+        assertTrue(set.validate('a'));
+
+        set.remove(new SlotValidators.DigitValidator());
+        assertFalse(set.validate('1'));
+
+        final Iterator<Slot.SlotValidator> iterator = set.iterator();
+        iterator.next();
+        iterator.remove();
+        assertFalse(set.validate('a'));
+
+        set.add(VOWELS);
+        assertTrue(set.validate('a'));
+        assertFalse(set.validate('b'));
+
+        set.clear();
+        assertFalse(set.validate('a'));
+    }
+
+    private static void assertValidatesAsAnyOf(Slot.SlotValidator... validators) {
+        final SlotValidatorSet set = SlotValidatorSet.setOf(validators);
+
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            boolean expected = false;
+            for (Slot.SlotValidator validator : validators) {
+                expected |= validator.validate((char) c);
+            }
+
+            assertEquals("Character " + c, expected, set.validate((char) c));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ru.tinkoff.decoro.slots.PredefinedSlots;
+import ru.tinkoff.decoro.slots.Slot;
+import ru.tinkoff.decoro.slots.SlotValueStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SlotValueStorageTest {
+
+    private SlotValueStorage storage;
+    private Slot first;
+    private Slot second;
+
+    @Before
+    public void setUp() {
+        storage = new SlotValueStorage();
+        first = new Slot('1');
+        second = new Slot();
+
+        storage.insertEmpty(0);
+        storage.attach(first, 0);
+        storage.insertEmpty(1);
+        storage.attach(second, 1);
+    }
+
+    @Test
+    public void attachMovesValueToStorage() {
+        assertEquals(2, storage.size());
+        assertTrue(storage.hasValue(0));
+        assertEquals('1', storage.getValue(0));
+        assertFalse(storage.hasValue(1));
+
+        second.setValue('я');
+        assertTrue(storage.hasValue(1));
+        assertEquals('я', storage.getValue(1));
+        assertEquals(Character.valueOf('я'), second.getValue());
+    }
+
+    @Test
+    public void insertEmptyShiftsValues() {
+        second.setValue('2');
+        storage.insertEmpty(1);
+
+        assertFalse(storage.hasValue(1));
+        assertEquals('2', storage.getValue(2));
+
+        storage.attach(second, 2);
+        assertEquals(Character.valueOf('2'), second.getValue());
+    }
+
+    @Test
+    public void detachKeepsValueInSlot() {
+        storage.detach(first);
+        storage.delete(0);
+
+        assertEquals(1, storage.size());
+        assertEquals(Character.valueOf('1'), first.getValue());
+
+        first.setValue(null);
+        assertNull(first.getValue());
+    }
+
+    @Test
+    public void lastInputIndexFollowsValuesAndShifts() {
+        final SlotsList list = new SlotsList();
+        for (int i = 0; i < 200; i++) {
+            list.insertSlotAt(i, i % 3 == 0 ? PredefinedSlots.hardcodedSlot('-') : PredefinedSlots.any());
+        }
+        assertEquals(-1, list.getLastInputIndex());
+
+        list.getSlot(130).setValue('a');
+        list.getSlot(64).setValue('b');
+        assertEquals(130, list.getLastInputIndex());
+
+        // hardcoded value is not an input
+        list.insertSlotAt(0, PredefinedSlots.hardcodedSlot('+'));
+        list.insertSlotAt(190, PredefinedSlots.hardcodedSlot('+'));
+        assertEquals(131, list.getLastInputIndex());
+        assertTrue(list.getSlot(65).anyInputToTheRight());
+        assertFalse(list.getSlot(132).anyInputToTheRight());
+
+        list.removeSlotAt(10);
+        assertEquals(130, list.getLastInputIndex());
+
+        list.removeSlotAt(130);
+        assertEquals(64, list.getLastInputIndex());
+        assertEquals('b', list.getValueAt(64));
+
+        list.getSlot(64).setFlags(Slot.RULES_HARDCODED);
+        assertEquals(-1, list.getLastInputIndex());
+
+        list.getSlot(64).setFlags(Slot.RULES_DEFAULT);
+        assertEquals(64, list.getLastInputIndex());
+    }
+
+    @Test
+    public void hardcodedSequenceEndCrossesWords() {
+        final SlotsList list = new SlotsList();
+        for (int i = 0; i < 150; i++) {
+            list.insertSlotAt(i, i < 10 || i > 140 ? PredefinedSlots.any() : PredefinedSlots.hardcodedSlot('-'));
+        }
+
+        assertEquals(-1, list.getSlot(5).hardcodedSequenceEndIndex());
+        assertEquals(131, list.getSlot(10).hardcodedSequenceEndIndex());
+        assertEquals(410, list.getSlot(100).hardcodedSequenceEndIndex(369));
+
+        list.getSlot(64).setFlags(Slot.RULES_DEFAULT);
+        assertEquals(54, list.getSlot(10).hardcodedSequenceEndIndex());
+        assertEquals(76, list.getSlot(65).hardcodedSequenceEndIndex());
+    }
+
+    @Test
+    public void decorationsIndexCrossesWords() {
+        final SlotsList list = new SlotsList();
+        for (int i = 0; i < 200; i++) {
+            list.insertSlotAt(i, i % 3 == 0 ? PredefinedSlots.hardcodedSlot('-').withTags(Slot.TAG_DECORATION) : PredefinedSlots.any());
+        }
+        assertDecorationsIndex(list);
+
+        list.removeSlotAt(63);
+        list.insertSlotAt(128, PredefinedSlots.hardcodedSlot(' ').withTags(Slot.TAG_DECORATION));
+        list.getSlot(64).getTags().add(Slot.TAG_DECORATION);
+        list.getSlot(150).getTags().remove(Slot.TAG_DECORATION);
+        assertDecorationsIndex(list);
+    }
+
+    private static void assertDecorationsIndex(SlotsList list) {
+        int decorations = 0;
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(decorations, list.decorationsBefore(i));
+            if (list.getSlot(i).hasTag(Slot.TAG_DECORATION)) {
+                decorations++;
+            } else {
+                assertEquals(i + 1, list.nonDecorationsEnd(i + 1 - decorations));
+            }
+        }
+        assertEquals(decorations, list.decorationsBefore(list.size()));
+    }
+
+    @Test
+    public void setValueDoesNotGrowStorage() {
+        first.setNextSlot(second);
+        second.setPrevSlot(first);
+        final int capacity = storage.capacity();
+
+        for (int i = 0; i < 1000; i++) {
+            // every new value shifts previous ones to the right
+            first.setValue((char) ('а' + i % 32));
+        }
+
+        assertEquals(capacity, storage.capacity());
+        assertEquals(2, storage.size());
+        assertEquals('з', storage.getValue(0));
+        assertEquals('ж', storage.getValue(1));
+    }
+}
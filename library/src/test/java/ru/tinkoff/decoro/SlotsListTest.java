@@ -134,6 +134,24 @@ public class SlotsListTest {
         assertEquals(list.getLastSlot().getPrevSlot(), PredefinedSlots.hardcodedSlot('6'));
     }
 
+    @Test
+    public void insertSlotAt_growsOnTail() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            list.insertSlotAt(list.size(), PredefinedSlots.digit());
+        }
+
+        assertEquals(105, list.size());
+        assertEquals(list.getSlot(104), list.getLastSlot());
+
+        int index = 0;
+        Slot slot = list.getFirstSlot();
+        while (slot != null) {
+            assertTrue(slot == list.getSlot(index++));
+            slot = slot.getNextSlot();
+        }
+        assertEquals(105, index);
+    }
+
     @Test(expected = IndexOutOfBoundsException.class)
     public void removeSlotAt_failsTooBig() throws Exception {
         list.removeSlotAt(10);
@@ -161,6 +179,39 @@ public class SlotsListTest {
 
     }
 
+    @Test
+    public void truncate() throws Exception {
+        final SlotsList longList = new SlotsList();
+        for (int i = 0; i < 150; i++) {
+            longList.insertSlotAt(i, PredefinedSlots.any());
+            longList.getSlot(i).setValue('a');
+        }
+
+        final Slot removed = longList.getSlot(100);
+        longList.truncate(100);
+        assertEquals(100, longList.size());
+        assertEquals(99, longList.getLastInputIndex());
+        assertNull(longList.getLastSlot().getNextSlot());
+        assertNull(longList.getSlot(100));
+
+        // removed slot keeps its value but doesn't belong to the list anymore
+        assertEquals(Character.valueOf('a'), removed.getValue());
+        assertNull(longList.removeSlot(removed));
+
+        longList.insertSlotAt(100, PredefinedSlots.any());
+        assertFalse(longList.hasValueAt(100));
+        assertEquals(99, longList.getLastInputIndex());
+
+        longList.truncate(0);
+        assertTrue(longList.isEmpty());
+        assertEquals(-1, longList.getLastInputIndex());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void truncate_failsTooBig() throws Exception {
+        list.truncate(6);
+    }
+
     @Test
     public void equals() throws Exception {
         assertNotEquals(list, null);
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.tinkoff.decoro.parser.PhoneNumberUnderscoreSlotsParser;
+import ru.tinkoff.decoro.parser.SlotsParser;
+import ru.tinkoff.decoro.parser.SlotsParsers;
+import ru.tinkoff.decoro.slots.Slot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Mikhail Artemev
+ */
+public class SlotsParsersTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void parsesInParallelWithSharedParser() throws Exception {
+        final SlotsParser parser = new PhoneNumberUnderscoreSlotsParser();
+
+        final List<String> rawMasks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rawMasks.add("+" + i + " (" + (i % 10) + "__) ___-" + i + "_-__");
+        }
+        // the same mask is parsed once
+        rawMasks.add(rawMasks.get(0));
+
+        final Map<String, Slot[]> parsed = SlotsParsers.parseAll(parser, rawMasks, executor);
+
+        assertEquals(300, parsed.size());
+        assertEquals(rawMasks.subList(0, 300), new ArrayList<>(parsed.keySet()));
+        for (String rawMask : rawMasks) {
+            assertArrayEquals(rawMask, new PhoneNumberUnderscoreSlotsParser().parseSlots(rawMask), parsed.get(rawMask));
+        }
+    }
+
+    @Test
+    public void parsedSlotsAreCached() throws Exception {
+        final List<String> rawMasks = Arrays.asList("+7 (___) ___-__-__", "+380 (__) ___-__-__");
+
+        final Map<String, Slot[]> parsed = SlotsParsers.parseAll(new PhoneNumberUnderscoreSlotsParser(), rawMasks, executor);
+
+        for (String rawMask : rawMasks) {
+            assertSame(parsed.get(rawMask), ParsedSlotsCache.parseSlots(new PhoneNumberUnderscoreSlotsParser(), rawMask));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rethrowsParserFailure() throws Exception {
+        SlotsParsers.parseAll(new PhoneNumberUnderscoreSlotsParser(), Arrays.asList("+7 ___", "", "+1 ___"), executor);
+    }
+
+    @Test(expected = StackOverflowError.class)
+    public void rethrowsParserError() throws Exception {
+        final SlotsParser parser = new SlotsParser() {
+            @NonNull
+            @Override
+            public Slot[] parseSlots(@NonNull CharSequence rawMask) {
+                throw new StackOverflowError();
+            }
+        };
+
+        SlotsParsers.parseAll(parser, Arrays.asList("+7 ___", "+1 ___"), executor);
+    }
+}
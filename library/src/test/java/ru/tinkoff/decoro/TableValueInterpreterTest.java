@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2016 Tinkoff Bank
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ru.tinkoff.decoro;
+
+import org.junit.Test;
+
+import ru.tinkoff.decoro.slots.CharValueInterpreter;
+import ru.tinkoff.decoro.slots.TableValueInterpreter;
+import ru.tinkoff.decoro.slots.ValueInterpreter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Mikhail Artemev
+ */
+public class TableValueInterpreterTest {
+
+    @Test
+    public void replacesCharacters() {
+        // close characters are kept in a table, distant ones are searched for
+        assertReplaces(TableValueInterpreter.replacing("8x", "7" + CharValueInterpreter.NO_VALUE), "8x", "7" + CharValueInterpreter.NO_VALUE);
+        assertReplaces(TableValueInterpreter.replacing("8\uFF18", "77"), "8\uFF18", "77");
+        assertReplaces(TableValueInterpreter.FULL_WIDTH_DIGITS,
+                "\uFF10\uFF11\uFF12\uFF13\uFF14\uFF15\uFF16\uFF17\uFF18\uFF19", "0123456789");
+        assertReplaces(TableValueInterpreter.CYRILLIC_TO_LATIN, "АВЕКМНОРСТХаеорсух", "ABEKMHOPCTXaeopcyx");
+        assertReplaces(TableValueInterpreter.LATIN_TO_CYRILLIC, "ABEKMHOPCTXaeopcyx", "АВЕКМНОРСТХаеорсух");
+        assertReplaces(TableValueInterpreter.replacing("", ""), "", "");
+    }
+
+    @Test
+    public void boxedInterpretation() {
+        final ValueInterpreter interpreter = TableValueInterpreter.replacing("8x", "7" + CharValueInterpreter.NO_VALUE);
+        assertEquals(Character.valueOf('7'), interpreter.interpret(Character.valueOf('8')));
+        assertEquals(Character.valueOf('9'), interpreter.interpret(Character.valueOf('9')));
+        assertNull(interpreter.interpret(Character.valueOf('x')));
+        assertNull(interpreter.interpret(null));
+    }
+
+    @Test
+    public void equalReplacements() {
+        assertEquals(TableValueInterpreter.replacing("12", "34"), TableValueInterpreter.replacing("21", "43"));
+        assertEquals(TableValueInterpreter.replacing("12", "34").hashCode(), TableValueInterpreter.replacing("21", "43").hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failsOnDifferentLengths() {
+        TableValueInterpreter.replacing("12", "3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failsOnSeveralReplacements() {
+        TableValueInterpreter.replacing("121", "345");
+    }
+
+    /**
+     * Checks that characters of {@code from} are replaced with ones of {@code to} and the
+     * characters around them are kept.
+     */
+    private static void assertReplaces(CharValueInterpreter interpreter, String from, String to) {
+        for (int i = 0; i < from.length(); i++) {
+            final char c = from.charAt(i);
+            assertEquals(to.charAt(i), interpreter.interpret(c));
+            if (from.indexOf(c - 1) < 0) {
+                assertEquals((char) (c - 1), interpreter.interpret((char) (c - 1)));
+            }
+            if (from.indexOf(c + 1) < 0) {
+                assertEquals((char) (c + 1), interpreter.interpret((char) (c + 1)));
+            }
+        }
+    }
+}